@@ -0,0 +1,252 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.data;
+
+import android.support.annotation.NonNull;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.List;
+
+import io.plaidapp.data.api.dribbble.DribbbleSearchService;
+import okhttp3.Interceptor;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.ForwardingSource;
+import okio.Okio;
+import okio.Source;
+import retrofit2.Response;
+
+/**
+ * Chooses how many items to request per network call based on measured throughput: fast
+ * connections make fewer, larger requests whilst slow ones stick to small pages which can be
+ * rendered quickly.
+ * <p>
+ * Paging is always expressed in <i>logical</i> pages of {@link #BASE_PAGE_SIZE} items, which is
+ * what {@link PlaidItem#page} records. A request may span several logical pages by asking for a
+ * multiple of the base page size; such requests are aligned so that the remote page boundaries
+ * coincide with logical ones.
+ * <p>
+ * A response's time is modelled as its latency (until the headers arrive) plus the time to
+ * transfer its body, which grows with the number of items requested. Bodies are streamed into the
+ * converter after the headers arrive, so they are timed by {@link #interceptor()}, which must be
+ * installed on the client making the requests.
+ */
+public class AdaptivePager {
+
+    public static final int BASE_PAGE_SIZE = DribbbleSearchService.PER_PAGE_DEFAULT;
+
+    // the number of logical pages a single request may span; must be ascending
+    private static final int[] PAGE_MULTIPLES = { 1, 2, 4 };
+    // aim for responses to complete within this time
+    private static final long TARGET_RESPONSE_MS = 1500L;
+    // weight given to each new measurement in the moving averages
+    private static final float SMOOTHING = 0.3f;
+
+    private float responseMs = -1f;
+    private float latencyMs = -1f;
+    private float bytesPerItem = -1f;
+    // averaged as time per byte so that a slow measurement pulls the average down quickly
+    private float msPerByte = -1f;
+
+    /**
+     * Describes a network request covering one or more consecutive logical pages.
+     */
+    public static class PageRequest {
+
+        public final int firstPage;
+        public final int pageCount;
+        public final int remotePage;
+        public final int pageSize;
+
+        PageRequest(int firstPage, int pageCount) {
+            this.firstPage = firstPage;
+            this.pageCount = pageCount;
+            pageSize = pageCount * BASE_PAGE_SIZE;
+            remotePage = (firstPage - 1) / pageCount + 1;
+        }
+
+        public int lastPage() {
+            return firstPage + pageCount - 1;
+        }
+    }
+
+    /**
+     * Build a request starting at the given logical page, sized for current network conditions.
+     */
+    public synchronized PageRequest requestFrom(int firstPage) {
+        final int desired = desiredPageCount();
+        int pageCount = 1;
+        for (int multiple : PAGE_MULTIPLES) {
+            // the request must align with logical page boundaries
+            if (multiple <= desired && (firstPage - 1) % multiple == 0) {
+                pageCount = multiple;
+            }
+        }
+        return new PageRequest(firstPage, pageCount);
+    }
+
+    /**
+     * Record the timing & size of a completed response to inform future requests. Only responses
+     * whose body was timed by {@link #interceptor()} and has been consumed are measured.
+     */
+    public void record(@NonNull Response<?> response, int itemCount) {
+        final okhttp3.Response raw = response.raw();
+        // responses served from the HTTP cache (or revalidated) tell us nothing about throughput
+        if (raw.networkResponse() == null
+                || raw.networkResponse().code() == HttpURLConnection.HTTP_NOT_MODIFIED
+                || itemCount <= 0) return;
+        final Object tag = raw.request().tag();
+        if (!(tag instanceof Transfer)) return;
+        final Transfer transfer = (Transfer) tag;
+        final long bytes = transfer.bytes;
+        final long endNanos = transfer.endNanos;
+        if (endNanos == 0L || bytes <= 0L) return;
+        record(nanosToMillis(transfer.headersNanos - transfer.startNanos),
+                nanosToMillis(endNanos - transfer.headersNanos), bytes, itemCount);
+    }
+
+    synchronized void record(long latencyMs, long transferMs, long bytes, int itemCount) {
+        responseMs = average(responseMs, latencyMs + transferMs);
+        this.latencyMs = average(this.latencyMs, latencyMs);
+        bytesPerItem = average(bytesPerItem, (float) bytes / itemCount);
+        // a body which arrived all at once transferred at least as fast as in a millisecond
+        msPerByte = average(msPerByte, (float) Math.max(1L, transferMs) / bytes);
+    }
+
+    /**
+     * An interceptor timing each response until its body has been read, for {@link #record}; must
+     * be added to the client's application interceptors so that it sees the body the converter
+     * reads.
+     */
+    public static Interceptor interceptor() {
+        return new Interceptor() {
+            @Override
+            public okhttp3.Response intercept(Chain chain) throws IOException {
+                final Transfer transfer = new Transfer(System.nanoTime());
+                // the tag is carried through to the response that Retrofit hands back
+                final okhttp3.Response response =
+                        chain.proceed(chain.request().newBuilder().tag(transfer).build());
+                transfer.headersNanos = System.nanoTime();
+                final ResponseBody body = response.body();
+                if (body == null) return response;
+                final Source timed = new TimingSource(body.source(), transfer);
+                return response.newBuilder()
+                        .body(ResponseBody.create(
+                                body.contentType(), body.contentLength(), Okio.buffer(timed)))
+                        .build();
+            }
+        };
+    }
+
+    /**
+     * Assign logical pages to items loaded by the given request.
+     */
+    public static void setPages(@NonNull List<? extends PlaidItem> items,
+                                @NonNull PageRequest request) {
+        setPages(items, request, 0);
+    }
+
+    /**
+     * Assign logical pages to a run of items loaded by the given request.
+     *
+     * @param offset the position of the first item within the request's results
+     */
+    public static void setPages(@NonNull List<? extends PlaidItem> items,
+                                @NonNull PageRequest request,
+                                int offset) {
+        for (int i = 0; i < items.size(); i++) {
+            items.get(i).page = request.firstPage + Math.min((offset + i) / BASE_PAGE_SIZE,
+                    request.pageCount - 1);
+        }
+    }
+
+    public synchronized float getAverageResponseMs() {
+        return responseMs;
+    }
+
+    public synchronized float getAverageBytesPerItem() {
+        return bytesPerItem;
+    }
+
+    /**
+     * The most logical pages which we expect to be able to load within the target time.
+     */
+    private int desiredPageCount() {
+        if (msPerByte <= 0f) return 1;
+        final float msPerPage = msPerByte * bytesPerItem * BASE_PAGE_SIZE;
+        return Math.max(1, (int) ((TARGET_RESPONSE_MS - latencyMs) / msPerPage));
+    }
+
+    private static float average(float current, float measurement) {
+        return current < 0f ? measurement : current + SMOOTHING * (measurement - current);
+    }
+
+    private static long nanosToMillis(long nanos) {
+        return nanos / 1000000L;
+    }
+
+    /**
+     * The timings of a response, from when it was requested until its body was read.
+     */
+    private static class Transfer {
+
+        final long startNanos;
+        volatile long headersNanos;
+        volatile long bytes;
+        volatile long endNanos; // 0 until the body has been read or closed
+
+        Transfer(long startNanos) {
+            this.startNanos = startNanos;
+        }
+
+        void finish() {
+            if (endNanos == 0L) endNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * Counts the bytes read from a body and notes when it is exhausted (or closed early).
+     */
+    private static class TimingSource extends ForwardingSource {
+
+        private final Transfer transfer;
+
+        TimingSource(Source delegate, Transfer transfer) {
+            super(delegate);
+            this.transfer = transfer;
+        }
+
+        @Override
+        public long read(Buffer sink, long byteCount) throws IOException {
+            final long read = super.read(sink, byteCount);
+            if (read == -1L) {
+                transfer.finish();
+            } else {
+                transfer.bytes += read;
+            }
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            transfer.finish();
+            super.close();
+        }
+    }
+
+}
@@ -17,20 +17,33 @@
 package io.plaidapp.data;
 
 import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
 import android.support.annotation.NonNull;
+import android.text.TextUtils;
 import android.util.Log;
 
 import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import io.plaidapp.BuildConfig;
 import io.plaidapp.data.api.DenvelopingConverter;
+import io.plaidapp.data.api.HttpClientProvider;
+import io.plaidapp.data.api.dribbble.CoalescingDribbbleSearchService;
+import io.plaidapp.data.api.dribbble.ConditionalDribbbleSearchService;
+import io.plaidapp.data.api.dribbble.DribbbleJsonSearchService;
 import io.plaidapp.data.api.dribbble.DribbbleSearchConverter;
 import io.plaidapp.data.api.dribbble.DribbbleSearchService;
+import io.plaidapp.data.api.dribbble.ShotBatches;
+import io.plaidapp.data.api.dribbble.ShotTypeAdapter;
+import io.plaidapp.data.api.dribbble.model.Shot;
 import okhttp3.OkHttpClient;
+import retrofit2.Call;
 import retrofit2.Retrofit;
 import retrofit2.converter.gson.GsonConverterFactory;
 
@@ -41,16 +54,39 @@ import retrofit2.converter.gson.GsonConverterFactory;
  */
 public abstract class BaseDataManager<T> implements DataLoadingSubject {
 
+    private final Context context;
     private final AtomicInteger loadingCount;
-    private DribbbleSearchService dribbbleSearchApi;
+    private static DribbbleSearchService dribbbleSearchApi;
+    private static AdaptivePager adaptivePager;
+    private static final ShotBatches shotBatches = new ShotBatches();
+    // every data manager sorts a query the same way, so that a saved search & the active search
+    // for the same query ask for the same pages, which are then coalesced
+    static final String QUERY_SORT = DribbbleSearchService.SORT_POPULAR;
+    private static Gson gson;
+    private static final Executor MAIN_THREAD = new Executor() {
+        private final Handler handler = new Handler(Looper.getMainLooper());
+
+        @Override
+        public void execute(@NonNull Runnable command) {
+            handler.post(command);
+        }
+    };
     private List<DataLoadingSubject.DataLoadingCallbacks> loadingCallbacks;
 
     public BaseDataManager(@NonNull Context context) {
+        this.context = context.getApplicationContext();
         loadingCount = new AtomicInteger(0);
     }
 
     public abstract void onDataLoaded(T data);
 
+    /**
+     * Called with items from a request which is still being loaded, so that they can be displayed
+     * as soon as possible. The same items will be included when the request is delivered to
+     * {@link #onDataLoaded(Object)}; ignored by default.
+     */
+    public void onDataBatch(T data) { }
+
     public abstract void cancelLoading();
 
     @Override
@@ -58,9 +94,49 @@ public abstract class BaseDataManager<T> implements DataLoadingSubject {
         return loadingCount.get() > 0;
     }
 
+    /**
+     * The search service is shared between all data managers so that identical in-flight requests
+     * (e.g. a saved search and an active search) can be coalesced.
+     */
     public DribbbleSearchService getDribbbleSearchApi() {
-        if (dribbbleSearchApi == null) createDribbbleSearchApi();
-        return dribbbleSearchApi;
+        synchronized (BaseDataManager.class) {
+            if (dribbbleSearchApi == null) createDribbbleSearchApi();
+            return dribbbleSearchApi;
+        }
+    }
+
+    /**
+     * The pager is shared between all data managers as they load over the same network.
+     */
+    public AdaptivePager getAdaptivePager() {
+        synchronized (BaseDataManager.class) {
+            if (adaptivePager == null) adaptivePager = new AdaptivePager();
+            return adaptivePager;
+        }
+    }
+
+    /**
+     * Search Dribbble for the pages of a query in the request.
+     */
+    protected Call<List<Shot>> searchQuery(String query, AdaptivePager.PageRequest request) {
+        return searchQuery(getDribbbleSearchApi(), query, request);
+    }
+
+    static Call<List<Shot>> searchQuery(DribbbleSearchService api,
+                                        String query,
+                                        AdaptivePager.PageRequest request) {
+        return api.search(query, request.remotePage, request.pageSize, QUERY_SORT);
+    }
+
+    /**
+     * Listen for shots from a {@link #searchQuery search} whilst its page is still being parsed.
+     * The listener is called on the main thread; unregister it once the search completes.
+     */
+    protected ShotBatches.Registration listenForBatches(String query,
+                                                        AdaptivePager.PageRequest request,
+                                                        ShotBatches.Listener listener) {
+        return shotBatches.register(query, request.remotePage, request.pageSize, QUERY_SORT,
+                listener, MAIN_THREAD);
     }
 
     @Override
@@ -126,12 +202,52 @@ public abstract class BaseDataManager<T> implements DataLoadingSubject {
         }
     }
 
+    /**
+     * A Gson instance shared by all data managers, with reflection-free adapters for our models.
+     */
+    public static Gson getGson() {
+        synchronized (BaseDataManager.class) {
+            if (gson == null) {
+                gson = ShotTypeAdapter.register(new GsonBuilder()).create();
+            }
+            return gson;
+        }
+    }
+
     private void createDribbbleSearchApi() {
-        dribbbleSearchApi = new Retrofit.Builder()
+        if (!TextUtils.isEmpty(BuildConfig.DRIBBBLE_SEARCH_JSON_ENDPOINT)) {
+            createDribbbleJsonSearchApi(BuildConfig.DRIBBBLE_SEARCH_JSON_ENDPOINT);
+            return;
+        }
+        final Retrofit retrofit = new Retrofit.Builder()
                 .baseUrl(DribbbleSearchService.ENDPOINT)
-                .addConverterFactory(new DribbbleSearchConverter.Factory())
-                .build()
-                .create((DribbbleSearchService.class));
+                .client(HttpClientProvider.getClient(context).newBuilder()
+                        .addInterceptor(AdaptivePager.interceptor())
+                        .addInterceptor(shotBatches.interceptor())
+                        .build())
+                .addConverterFactory(new DribbbleSearchConverter.Factory(true))
+                .build();
+        final DribbbleSearchService conditionalSearch = new ConditionalDribbbleSearchService(
+                retrofit.create(ConditionalDribbbleSearchService.ConditionalSearchApi.class));
+        dribbbleSearchApi = new CoalescingDribbbleSearchService(
+                conditionalSearch, retrofit.callbackExecutor());
+    }
+
+    /**
+     * Search a JSON endpoint (e.g. a local stand-in server) rather than scraping search pages.
+     */
+    private void createDribbbleJsonSearchApi(String endpoint) {
+        final Retrofit retrofit = new Retrofit.Builder()
+                .baseUrl(endpoint)
+                .client(HttpClientProvider.getClient(context).newBuilder()
+                        .addInterceptor(AdaptivePager.interceptor())
+                        .build())
+                .addConverterFactory(new DenvelopingConverter(getGson()))
+                .build();
+        dribbbleSearchApi = new CoalescingDribbbleSearchService(
+                new DribbbleJsonSearchService.Adapter(
+                        retrofit.create(DribbbleJsonSearchService.class)),
+                retrofit.callbackExecutor());
     }
 
 }
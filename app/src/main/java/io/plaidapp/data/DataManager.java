@@ -17,15 +17,24 @@
 package io.plaidapp.data;
 
 import android.content.Context;
-import android.util.Log;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import io.plaidapp.data.api.dribbble.DribbbleSearchService;
+import io.plaidapp.data.api.dribbble.ShotBatches;
 import io.plaidapp.data.api.dribbble.model.Shot;
+import io.plaidapp.data.db.ShotStore;
 import io.plaidapp.ui.FilterAdapter;
+import okhttp3.HttpUrl;
 import retrofit2.Call;
 import retrofit2.Callback;
 import retrofit2.Response;
@@ -33,20 +42,59 @@ import retrofit2.Response;
 /**
  * Responsible for loading data from the various sources. Instantiating classes are responsible for
  * providing the {code onDataLoaded} method to do something with the data.
+ * <p>
+ * Source loads are fanned out through a {@link SourceLoadScheduler} which bounds concurrency per
+ * host and starts the most promising sources first; results are delivered as each one completes.
+ * <p>
+ * The most recent pages of each source are persisted to a {@link FeedCache};
+ * {@link #loadCachedDataSources()} serves these immediately (e.g. on a cold start) whilst fresh pages
+ * are loaded. Every loaded page is also written to the {@link ShotStore}, from which sources are
+ * paged when there is no connectivity.
+ * <p>
+ * Failed loads are retried (for the same page) with backoff, and sources which keep failing are
+ * temporarily skipped; see {@link SourceResilience}.
+ * <p>
+ * Once a page of a source has been delivered, the following page(s) are speculatively prefetched
+ * (unless on a metered network) and held until {@link #loadAllDataSources()} next asks for them.
+ * Prefetches go through the scheduler too, behind any load the user is waiting for.
  */
 public abstract class DataManager extends BaseDataManager<List<? extends PlaidItem>> {
 
+    private static final int DEFAULT_PREFETCH_DEPTH = 1;
+    private static final String DRIBBBLE_HOST =
+            HttpUrl.parse(DribbbleSearchService.ENDPOINT).host();
+
     private final FilterAdapter filterAdapter;
+    private final ConnectivityManager connectivityManager;
+    private final SourceLoadScheduler scheduler;
+    private final FeedCache feedCache;
+    private final ShotStore shotStore;
+    private final SourceResilience resilience;
+    private final Handler retryHandler;
+    private Map<String, Runnable> pendingRetries;
     private Map<String, Integer> pageIndexes;
     private Map<String, Call> inflight;
+    // source key -> prefetch call, or null whilst the prefetch waits for the scheduler
+    private Map<String, Call> prefetchInflight;
+    private final PrefetchBuffer prefetched;
 
     public DataManager(Context context,
                        FilterAdapter filterAdapter) {
         super(context);
         this.filterAdapter = filterAdapter;
+        connectivityManager =
+                (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        scheduler = new SourceLoadScheduler();
+        feedCache = new FeedCache(context);
+        shotStore = ShotStore.getInstance(context);
+        resilience = new SourceResilience();
+        retryHandler = new Handler(Looper.getMainLooper());
+        pendingRetries = new HashMap<>();
         filterAdapter.registerFilterChangedCallback(filterListener);
         setupPageIndexes();
         inflight = new HashMap<>();
+        prefetchInflight = new HashMap<>();
+        prefetched = new PrefetchBuffer(effectivePrefetchDepth(DEFAULT_PREFETCH_DEPTH));
     }
 
     public void loadAllDataSources() {
@@ -55,14 +103,78 @@ public abstract class DataManager extends BaseDataManager<List<? extends PlaidIt
         }
     }
 
+    /**
+     * Synchronously deliver any cached pages of the active sources. This does not affect paging;
+     * a subsequent {@link #loadAllDataSources()} revalidates from the first page and fresh items
+     * are merged in.
+     */
+    public void loadCachedDataSources() {
+        for (Source filter : filterAdapter.getFilters()) {
+            if (!filter.active) continue;
+            final List<List<Shot>> cachedPages = feedCache.read(filter.key);
+            for (int i = 0; i < cachedPages.size(); i++) {
+                final List<Shot> data = cachedPages.get(i);
+                setPage(data, i + 1);
+                setDataSource(data, filter.key);
+                onDataLoaded(data);
+            }
+        }
+    }
+
+    /**
+     * Resume paging from a {@link FeedSnapshot} which has been restored in place of loading; the
+     * next {@link #loadAllDataSources()} loads the page following each source's restored page.
+     */
+    public void restorePageIndexes(@NonNull Map<String, Integer> restored) {
+        for (Map.Entry<String, Integer> pageIndex : restored.entrySet()) {
+            // ignore sources which have since been removed
+            if (pageIndexes.containsKey(pageIndex.getKey())) {
+                pageIndexes.put(pageIndex.getKey(), pageIndex.getValue());
+            }
+        }
+    }
+
+    /**
+     * Set how many pages ahead of the last delivered page to prefetch for each source. Zero
+     * disables prefetching.
+     */
+    public void setPrefetchDepth(int prefetchDepth) {
+        prefetched.setDepth(effectivePrefetchDepth(prefetchDepth));
+        if (prefetched.getDepth() == 0) {
+            clearPrefetched();
+        }
+    }
+
+    private int effectivePrefetchDepth(int prefetchDepth) {
+        // a prefetch which the scheduler would never start would block the source's prefetching
+        return scheduler.canPrefetch() ? prefetchDepth : 0;
+    }
+
     @Override
     public void cancelLoading() {
+        // pending loads were counted as started but will never complete so balance them here
+        final int dropped = scheduler.cancelAll() + pendingRetries.size();
+        for (Runnable retry : pendingRetries.values()) {
+            retryHandler.removeCallbacks(retry);
+        }
+        pendingRetries.clear();
+        for (int i = 0; i < dropped; i++) {
+            loadFinished();
+        }
         if (inflight.size() > 0) {
             for (Call call : inflight.values()) {
                 call.cancel();
             }
             inflight.clear();
         }
+        clearPrefetched();
+    }
+
+    /**
+     * Failure counters for each source, e.g. to find which saved searches are costing us latency.
+     */
+    public Map<String, SourceResilience.Stats> getSourceFailureStats() {
+        return resilience.getAllStats();
     }
 
     private final FilterAdapter.FiltersChangedCallbacks filterListener =
@@ -73,25 +185,65 @@ public abstract class DataManager extends BaseDataManager<List<? extends PlaidIt
                 loadSource(changedFilter);
             } else { // filter deactivated
                 final String key = changedFilter.key;
+                for (int i = scheduler.cancel(key); i > 0; i--) {
+                    loadFinished();
+                }
+                final Runnable retry = pendingRetries.remove(key);
+                if (retry != null) {
+                    retryHandler.removeCallbacks(retry);
+                    loadFinished();
+                }
                 if (inflight.containsKey(key)) {
                     final Call call = inflight.get(key);
                     if (call != null) call.cancel();
                     inflight.remove(key);
                 }
+                clearPrefetched(key);
                 // clear the page index for the source
                 pageIndexes.put(key, 0);
             }
         }
+
+        @Override
+        public void onFilterRemoved(Source removed) {
+            feedCache.remove(removed.key);
+            shotStore.removeDataSource(removed.key);
+            resilience.reset(removed.key);
+        }
     };
 
     private void loadSource(Source source) {
         if (source.active) {
+            if (deliverPrefetched(source)) return;
+            final boolean online = isOnline();
+            // skip sources whose circuit breaker is open; it will let a probe through later
+            if (online && (pendingRetries.containsKey(source.key)
+                    || !resilience.allowRequest(source.key))) return;
             loadStarted();
             final int page = getNextPageIndex(source.key);
-            loadDribbbleSearch((Source.DribbbleSearchSource) source, page);
+            if (!online) {
+                loadFromStore(source.key, page);
+                return;
+            }
+            // we may load several logical pages at once on a fast connection
+            final AdaptivePager.PageRequest request = getAdaptivePager().requestFrom(page);
+            pageIndexes.put(source.key, request.lastPage());
+            scheduleDribbbleSearch((Source.DribbbleSearchSource) source, request, 1);
         }
     }
 
+    private void scheduleDribbbleSearch(final Source.DribbbleSearchSource source,
+                                        final AdaptivePager.PageRequest request,
+                                        final int attempt) {
+        scheduler.schedule(source.key, DRIBBBLE_HOST,
+                filterAdapter.getFilterPosition(source), new SourceLoadScheduler.Load() {
+                    @Override
+                    public void start(@NonNull SourceLoadScheduler.Ticket ticket) {
+                        loadDribbbleSearch(source, request, attempt, ticket);
+                    }
+                });
+    }
+
     private void setupPageIndexes() {
         final List<Source> dateSources = filterAdapter.getFilters();
         pageIndexes = new HashMap<>(dateSources.size());
@@ -113,40 +265,261 @@ public abstract class DataManager extends BaseDataManager<List<? extends PlaidIt
         return pageIndexes.get(key) != 0;
     }
 
-    private void sourceLoaded(List<? extends PlaidItem> data, int page, String key) {
+    private void sourceLoaded(List<Shot> data,
+                              AdaptivePager.PageRequest request,
+                              String key,
+                              SourceLoadScheduler.Ticket ticket) {
         loadFinished();
         if (data != null && !data.isEmpty() && sourceIsEnabled(key)) {
-            setPage(data, page);
+            AdaptivePager.setPages(data, request);
             setDataSource(data, key);
             onDataLoaded(data);
+            // persist by logical page
+            for (int i = 0; i < request.pageCount; i++) {
+                final int start = i * AdaptivePager.BASE_PAGE_SIZE;
+                if (start >= data.size()) break;
+                final List<Shot> pageData = new ArrayList<>(data.subList(
+                        start, Math.min(start + AdaptivePager.BASE_PAGE_SIZE, data.size())));
+                feedCache.put(key, request.firstPage + i, pageData);
+                shotStore.putPage(key, request.firstPage + i, pageData);
+            }
         }
         inflight.remove(key);
+        final boolean hit = data != null && !data.isEmpty();
+        scheduler.finished(ticket, hit);
+        if (hit) {
+            prefetchNextPage(key);
+        }
     }
 
-    private void loadFailed(String key) {
-        loadFinished();
+    /**
+     * Retry a failed load of the same page after a backoff or, if the source should not be retried,
+     * finish the load and rewind its page index so that the page is not skipped.
+     */
+    private void loadFailed(final Source.DribbbleSearchSource source,
+                            final AdaptivePager.PageRequest request,
+                            final int attempt,
+                            SourceLoadScheduler.Ticket ticket,
+                            long elapsedMillis) {
+        final String key = source.key;
         inflight.remove(key);
+        scheduler.finished(ticket, false);
+        final long retryIn = sourceIsEnabled(key)
+                ? resilience.onFailure(key, attempt, elapsedMillis) : -1L;
+        if (retryIn >= 0L) {
+            // the load is still in progress so don't call loadFinished
+            final Runnable retry = new Runnable() {
+                @Override
+                public void run() {
+                    pendingRetries.remove(key);
+                    scheduleDribbbleSearch(source, request, attempt + 1);
+                }
+            };
+            pendingRetries.put(key, retry);
+            retryHandler.postDelayed(retry, retryIn);
+        } else {
+            loadFinished();
+            if (sourceIsEnabled(key) && pageIndexes.get(key) == request.lastPage()) {
+                pageIndexes.put(key, request.firstPage - 1);
+            }
+        }
     }
 
-    private void loadDribbbleSearch(final Source.DribbbleSearchSource source, final int page) {
-        final Call<List<Shot>> searchCall = getDribbbleSearchApi().search(source.query, page,
-                DribbbleSearchService.PER_PAGE_DEFAULT, DribbbleSearchService.SORT_RECENT);
+    private void loadCanceled(String key, Call call, SourceLoadScheduler.Ticket ticket) {
+        resilience.onCanceled(key);
+        loadFinished();
+        if (inflight.get(key) == call) {
+            inflight.remove(key);
+        }
+        scheduler.finished(ticket, false);
+    }
+
+    private void loadDribbbleSearch(final Source.DribbbleSearchSource source,
+                                    final AdaptivePager.PageRequest request,
+                                    final int attempt,
+                                    final SourceLoadScheduler.Ticket ticket) {
+        final long startTime = SystemClock.elapsedRealtime();
+        resilience.onAttempt(source.key);
+        final Call<List<Shot>> searchCall = searchQuery(source.query, request);
+        // show the first shots whilst the rest of the page is still downloading
+        final ShotBatches.Registration batches = listenForBatches(source.query, request,
+                new ShotBatches.Listener() {
+                    @Override
+                    public void onShotsParsed(@NonNull List<Shot> shots, int offset) {
+                        if (inflight.get(source.key) != searchCall
+                                || !sourceIsEnabled(source.key)) return;
+                        AdaptivePager.setPages(shots, request, offset);
+                        setDataSource(shots, source.key);
+                        onDataBatch(shots);
+                    }
+                });
         searchCall.enqueue(new Callback<List<Shot>>() {
             @Override
             public void onResponse(Call<List<Shot>> call, Response<List<Shot>> response) {
+                batches.unregister();
                 if (response.isSuccessful()) {
-                    sourceLoaded(response.body(), page, source.key);
+                    resilience.onSuccess(source.key);
+                    final List<Shot> shots = response.body();
+                    getAdaptivePager().record(response, shots != null ? shots.size() : 0);
+                    sourceLoaded(shots, request, source.key, ticket);
                 } else {
-                    loadFailed(source.key);
+                    loadFailed(source, request, attempt, ticket,
+                            SystemClock.elapsedRealtime() - startTime);
                 }
             }
 
             @Override
             public void onFailure(Call<List<Shot>> call, Throwable t) {
-                loadFailed(source.key);
+                batches.unregister();
+                if (call.isCanceled()) {
+                    loadCanceled(source.key, call, ticket);
+                } else {
+                    loadFailed(source, request, attempt, ticket,
+                            SystemClock.elapsedRealtime() - startTime);
+                }
             }
         });
         inflight.put(source.key, searchCall);
     }
 
+    /**
+     * Page a source from the on-device store when we are offline.
+     */
+    private void loadFromStore(final String key, final int page) {
+        shotStore.loadPage(key, page, new ShotStore.PageCallback() {
+            @Override
+            public void onPageLoaded(@NonNull List<Shot> shots) {
+                loadFinished();
+                if (!shots.isEmpty() && sourceIsEnabled(key)) {
+                    setPage(shots, page);
+                    setDataSource(shots, key);
+                    onDataLoaded(shots);
+                }
+            }
+        });
+    }
+
+    private boolean isOnline() {
+        if (connectivityManager == null) return true;
+        final NetworkInfo activeNetwork = connectivityManager.getActiveNetworkInfo();
+        return activeNetwork != null && activeNetwork.isConnected();
+    }
+
+    /**
+     * If we hold a prefetched page for this source then deliver it immediately.
+     *
+     * @return whether a prefetched page was delivered
+     */
+    private boolean deliverPrefetched(Source source) {
+        final List<Shot> data = prefetched.poll(source.key);
+        if (data == null) return false;
+        final int page = getNextPageIndex(source.key);
+        setPage(data, page);
+        setDataSource(data, source.key);
+        onDataLoaded(data);
+        feedCache.put(source.key, page, data);
+        shotStore.putPage(source.key, page, data);
+        prefetchNextPage(source.key);
+        return true;
+    }
+
+    /**
+     * Speculatively fetch the page following the last delivered (or buffered) page of a source, up
+     * to the prefetch depth.
+     */
+    private void prefetchNextPage(final String key) {
+        if (prefetchInflight.containsKey(key) || !pageIndexes.containsKey(key)
+                || connectivityManager == null) {
+            return;
+        }
+        final int page = prefetched.nextPage(key, pageIndexes.get(key),
+                connectivityManager.isActiveNetworkMetered());
+        if (page == PrefetchBuffer.NO_PAGE) return;
+        final Source.DribbbleSearchSource source = findDribbbleSearchSource(key);
+        if (source == null) return;
+        // noted before scheduling, as the scheduler may start the prefetch straight away
+        prefetchInflight.put(key, null);
+        scheduler.schedulePrefetch(key, DRIBBBLE_HOST, filterAdapter.getFilterPosition(source),
+                new SourceLoadScheduler.Load() {
+                    @Override
+                    public void start(@NonNull SourceLoadScheduler.Ticket ticket) {
+                        prefetch(source, page, ticket);
+                    }
+                });
+    }
+
+    private void prefetch(final Source.DribbbleSearchSource source,
+                          final int page,
+                          final SourceLoadScheduler.Ticket ticket) {
+        final String key = source.key;
+        if (!isPrefetchWanted(key, page)) {
+            // overtaken by a load whilst waiting to start; try the page which is now next
+            prefetchInflight.remove(key);
+            scheduler.finished(ticket, false);
+            prefetchNextPage(key);
+            return;
+        }
+        // one logical page
+        final Call<List<Shot>> prefetchCall =
+                searchQuery(source.query, new AdaptivePager.PageRequest(page, 1));
+        prefetchCall.enqueue(new Callback<List<Shot>>() {
+            @Override
+            public void onResponse(Call<List<Shot>> call, Response<List<Shot>> response) {
+                scheduler.finished(ticket, false);
+                if (prefetchInflight.get(key) != call) return;
+                prefetchInflight.remove(key);
+                final List<Shot> shots = response.body();
+                if (!response.isSuccessful() || shots == null || shots.isEmpty()) return;
+                if (!pageIndexes.containsKey(key)) return;
+                // if a load overtook this prefetch it is discarded; either way go on to the page
+                // which is now next, rather than waiting for the next delivery
+                prefetched.offer(key, page, pageIndexes.get(key), shots);
+                prefetchNextPage(key);
+            }
+
+            @Override
+            public void onFailure(Call<List<Shot>> call, Throwable t) {
+                scheduler.finished(ticket, false);
+                if (prefetchInflight.get(key) == call) {
+                    prefetchInflight.remove(key);
+                }
+            }
+        });
+        prefetchInflight.put(key, prefetchCall);
+    }
+
+    /**
+     * Whether the given page is still the next one to buffer for a source; it may have been loaded
+     * directly in the meantime or the source may have been reset.
+     */
+    private boolean isPrefetchWanted(String key, int page) {
+        return pageIndexes.containsKey(key) && prefetched.isWanted(key, page, pageIndexes.get(key));
+    }
+
+    private Source.DribbbleSearchSource findDribbbleSearchSource(String key) {
+        for (Source filter : filterAdapter.getFilters()) {
+            if (filter.active && filter.key.equals(key)
+                    && filter instanceof Source.DribbbleSearchSource) {
+                return (Source.DribbbleSearchSource) filter;
+            }
+        }
+        return null;
+    }
+
+    private void clearPrefetched(String key) {
+        scheduler.cancelPrefetch(key);
+        final Call call = prefetchInflight.remove(key);
+        if (call != null) call.cancel();
+        prefetched.clear(key);
+    }
+
+    private void clearPrefetched() {
+        scheduler.cancelPrefetches();
+        for (Call call : prefetchInflight.values()) {
+            if (call != null) call.cancel();
+        }
+        prefetchInflight.clear();
+        prefetched.clear();
+    }
+
 }
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.data;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import io.plaidapp.data.api.dribbble.ShotRecord;
+import io.plaidapp.data.api.dribbble.model.Images;
+import io.plaidapp.data.api.dribbble.model.Shot;
+
+/**
+ * A persistent cache of the most recently loaded pages of each {@link Source}, stored as parsed
+ * {@link Shot}s. Reads are synchronous (so that a cold start can populate the grid immediately)
+ * whilst writes happen on a background thread.
+ */
+public class FeedCache {
+
+    private static final String TAG = "FeedCache";
+    private static final String CACHE_DIR = "feed";
+    private static final int FORMAT_VERSION = 1;
+    public static final int DEFAULT_MAX_PAGES = 3;
+
+    private static final ExecutorService writer = Executors.newSingleThreadExecutor();
+
+    private final File dir;
+    private final int maxPages;
+    private final Map<String, List<List<Shot>>> pages = new HashMap<>();
+
+    public FeedCache(@NonNull Context context) {
+        this(context, DEFAULT_MAX_PAGES);
+    }
+
+    public FeedCache(@NonNull Context context, int maxPages) {
+        dir = new File(context.getApplicationContext().getCacheDir(), CACHE_DIR);
+        this.maxPages = Math.max(1, maxPages);
+    }
+
+    /**
+     * Synchronously read the cached pages of a source, in page order.
+     */
+    public @NonNull List<List<Shot>> read(@NonNull String sourceKey) {
+        List<List<Shot>> cached = pages.get(sourceKey);
+        if (cached == null) {
+            cached = readFile(sourceKey);
+            pages.put(sourceKey, cached);
+        }
+        return Collections.unmodifiableList(cached);
+    }
+
+    /**
+     * Record a freshly loaded page of a source. Loading page 1 restarts the cached pages; later
+     * pages are appended as long as they follow on and we hold fewer than the maximum.
+     */
+    public void put(@NonNull final String sourceKey, int page, @NonNull List<Shot> shots) {
+        List<List<Shot>> cached = pages.get(sourceKey);
+        if (cached == null || page == 1) {
+            cached = new ArrayList<>(maxPages);
+            pages.put(sourceKey, cached);
+        }
+        if (page != cached.size() + 1 || cached.size() >= maxPages) return;
+        cached.add(new ArrayList<>(shots));
+
+        final List<List<Shot>> snapshot = new ArrayList<>(cached);
+        writer.execute(new Runnable() {
+            @Override
+            public void run() {
+                writeFile(sourceKey, snapshot);
+            }
+        });
+    }
+
+    /**
+     * Forget the cached pages of a source, e.g. when it is removed.
+     */
+    public void remove(@NonNull final String sourceKey) {
+        pages.remove(sourceKey);
+        writer.execute(new Runnable() {
+            @Override
+            public void run() {
+                //noinspection ResultOfMethodCallIgnored
+                getFile(sourceKey).delete();
+            }
+        });
+    }
+
+    private File getFile(String sourceKey) {
+        return new File(dir, Integer.toHexString(sourceKey.hashCode()) + ".feed");
+    }
+
+    private List<List<Shot>> readFile(String sourceKey) {
+        final List<List<Shot>> cached = new ArrayList<>(maxPages);
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(getFile(sourceKey))))) {
+            if (in.readInt() != FORMAT_VERSION || !sourceKey.equals(in.readUTF())) {
+                return cached;
+            }
+            final int pageCount = Math.min(in.readInt(), maxPages);
+            for (int i = 0; i < pageCount; i++) {
+                final int shotCount = in.readInt();
+                final List<Shot> shots = new ArrayList<>(shotCount);
+                for (int j = 0; j < shotCount; j++) {
+                    shots.add(readShot(in));
+                }
+                cached.add(shots);
+            }
+        } catch (FileNotFoundException e) {
+            // nothing cached yet
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to read cached feed for " + sourceKey, e);
+            cached.clear();
+        }
+        return cached;
+    }
+
+    private void writeFile(String sourceKey, List<List<Shot>> cached) {
+        if (!dir.exists() && !dir.mkdirs()) return;
+        final File file = getFile(sourceKey);
+        final File temp = new File(dir, file.getName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(FORMAT_VERSION);
+            out.writeUTF(sourceKey);
+            out.writeInt(cached.size());
+            for (List<Shot> shots : cached) {
+                out.writeInt(shots.size());
+                for (Shot shot : shots) {
+                    writeShot(shot, out);
+                }
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write cached feed for " + sourceKey, e);
+            //noinspection ResultOfMethodCallIgnored
+            temp.delete();
+            return;
+        }
+        if (!temp.renameTo(file)) {
+            //noinspection ResultOfMethodCallIgnored
+            temp.delete();
+        }
+    }
+
+    /* Serialization of the fields populated when loading shots, shared with FeedSnapshot */
+
+    static void writeShot(Shot shot, DataOutput out) throws IOException {
+        new ShotRecord(shot.id, shot.title, shot.description, shot.html_url,
+                shot.images != null ? shot.images.hidpi : null,
+                shot.images != null ? shot.images.normal : null,
+                shot.images != null ? shot.images.getTeaser() : null,
+                shot.width, shot.height, shot.views_count, shot.likes_count,
+                shot.comments_count, shot.getCreatedAtMillis(), shot.animated).write(out);
+    }
+
+    static Shot readShot(DataInput in) throws IOException {
+        final ShotRecord record = ShotRecord.read(in);
+        return new Shot.Builder()
+                .setId(record.id)
+                .setTitle(record.title)
+                .setDescription(record.description)
+                .setHtmlUrl(record.htmlUrl)
+                .setImages(new Images(record.hidpiImage, record.normalImage, record.teaserImage))
+                .setWidth(record.width)
+                .setHeight(record.height)
+                .setViewsCount(record.viewsCount)
+                .setLikesCount(record.likesCount)
+                .setCommentsCount(record.commentsCount)
+                .setCreatedAt(record.createdAt)
+                .setAnimated(record.animated)
+                .build();
+    }
+
+}
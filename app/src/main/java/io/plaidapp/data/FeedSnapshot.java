@@ -0,0 +1,275 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.data;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import io.plaidapp.data.api.dribbble.model.Shot;
+
+import static io.plaidapp.util.StreamUtils.readString;
+import static io.plaidapp.util.StreamUtils.writeString;
+
+/**
+ * A snapshot of the feed: its items, scroll position and how far each source has been paged, so
+ * that the grid can be rebuilt after a configuration change or process death without touching the
+ * network.
+ * <p>
+ * Snapshots are too large to pass through the Binder in saved instance state, so they are written
+ * to a file as a single length-prefixed blob and only the file's name is saved. A snapshot captures
+ * the (mutable) page & data source of each item when it is taken, so that it can be serialized on
+ * a background thread whilst the feed carries on changing.
+ */
+public class FeedSnapshot {
+
+    private static final String TAG = "FeedSnapshot";
+    private static final String SNAPSHOT_DIR = "snapshot";
+    private static final int FORMAT_VERSION = 1;
+
+    private static final ExecutorService writer = Executors.newSingleThreadExecutor();
+    // the most recent write, so that reading it back within the same process waits for it
+    private static String pendingName;
+    private static Future<?> pendingWrite;
+
+    public final List<Shot> items;
+    public final int scrollPosition;
+    public final Map<String, Integer> pageIndexes;
+    private final String[] dataSources;
+    private final int[] pages;
+
+    FeedSnapshot(List<Shot> items, int scrollPosition, Map<String, Integer> pageIndexes) {
+        this.items = items;
+        this.scrollPosition = scrollPosition;
+        this.pageIndexes = pageIndexes;
+        dataSources = new String[items.size()];
+        pages = new int[items.size()];
+        for (int i = 0; i < dataSources.length; i++) {
+            dataSources[i] = items.get(i).dataSource;
+            pages[i] = items.get(i).page;
+        }
+    }
+
+    /**
+     * Capture a snapshot of the given items. Each source's page index is the last page of it
+     * displayed, so that paging resumes from the following page.
+     */
+    public static FeedSnapshot of(@NonNull List<? extends PlaidItem> items, int scrollPosition) {
+        final List<Shot> shots = new ArrayList<>(items.size());
+        final Map<String, Integer> pageIndexes = new HashMap<>();
+        for (PlaidItem item : items) {
+            if (!(item instanceof Shot)) continue;
+            shots.add((Shot) item);
+            final Integer page = pageIndexes.get(item.dataSource);
+            if (page == null || item.page > page) {
+                pageIndexes.put(item.dataSource, item.page);
+            }
+        }
+        return new FeedSnapshot(Collections.unmodifiableList(shots), Math.max(0, scrollPosition),
+                Collections.unmodifiableMap(pageIndexes));
+    }
+
+    /**
+     * Serialize the snapshot & write it to a file in the background; the write replaces any
+     * previous snapshot.
+     *
+     * @return the name of the snapshot, to be restored with {@link #read(Context, String)}
+     */
+    @NonNull
+    public String write(@NonNull Context context) {
+        return write(getDir(context));
+    }
+
+    @NonNull
+    String write(@NonNull final File dir) {
+        final String name = UUID.randomUUID().toString();
+        final Future<?> write = writer.submit(new Runnable() {
+            @Override
+            public void run() {
+                final byte[] blob;
+                try {
+                    blob = serialize();
+                } catch (IOException e) {
+                    Log.w(TAG, "Failed to serialize feed snapshot", e);
+                    return;
+                }
+                writeFile(dir, name, blob);
+            }
+        });
+        synchronized (FeedSnapshot.class) {
+            pendingName = name;
+            pendingWrite = write;
+        }
+        return name;
+    }
+
+    /**
+     * Synchronously read a snapshot previously returned by {@link #write(Context)}, waiting for it
+     * to be written if need be.
+     *
+     * @return the snapshot, or null if it is missing or unreadable
+     */
+    @Nullable
+    public static FeedSnapshot read(@NonNull Context context, @Nullable String name) {
+        return read(getDir(context), name);
+    }
+
+    @Nullable
+    static FeedSnapshot read(@NonNull File dir, @Nullable String name) {
+        if (name == null) return null;
+        awaitWrite(name);
+        try {
+            final byte[] blob = readFile(new File(dir, name));
+            return blob != null ? deserialize(blob) : null;
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to read feed snapshot " + name, e);
+            return null;
+        }
+    }
+
+    /**
+     * Wait for a snapshot written by this process to reach its file. Snapshots are usually read
+     * after the process is restarted, so this rarely waits.
+     */
+    private static void awaitWrite(String name) {
+        final Future<?> write;
+        synchronized (FeedSnapshot.class) {
+            if (!name.equals(pendingName)) return;
+            write = pendingWrite;
+            pendingName = null;
+            pendingWrite = null;
+        }
+        try {
+            write.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            Log.w(TAG, "Failed to write feed snapshot " + name, e.getCause());
+        }
+    }
+
+    private byte[] serialize() throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(scrollPosition);
+        out.writeInt(pageIndexes.size());
+        for (Map.Entry<String, Integer> pageIndex : pageIndexes.entrySet()) {
+            writeString(pageIndex.getKey(), out);
+            out.writeInt(pageIndex.getValue());
+        }
+        out.writeInt(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            // items' page & data source may have changed since the snapshot was taken
+            writeString(dataSources[i], out);
+            out.writeInt(pages[i]);
+            FeedCache.writeShot(items.get(i), out);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static FeedSnapshot deserialize(byte[] blob) throws IOException {
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(blob));
+        final int scrollPosition = in.readInt();
+        final int pageIndexCount = in.readInt();
+        final Map<String, Integer> pageIndexes = new HashMap<>(pageIndexCount);
+        for (int i = 0; i < pageIndexCount; i++) {
+            pageIndexes.put(readString(in), in.readInt());
+        }
+        final int itemCount = in.readInt();
+        final List<Shot> items = new ArrayList<>(itemCount);
+        for (int i = 0; i < itemCount; i++) {
+            final String dataSource = readString(in);
+            final int page = in.readInt();
+            final Shot shot = FeedCache.readShot(in);
+            shot.dataSource = dataSource;
+            shot.page = page;
+            items.add(shot);
+        }
+        return new FeedSnapshot(Collections.unmodifiableList(items), scrollPosition,
+                Collections.unmodifiableMap(pageIndexes));
+    }
+
+    private static File getDir(Context context) {
+        return new File(context.getApplicationContext().getCacheDir(), SNAPSHOT_DIR);
+    }
+
+    private static void writeFile(File dir, String name, byte[] blob) {
+        if (!dir.exists() && !dir.mkdirs()) return;
+        final File file = new File(dir, name);
+        final File temp = new File(dir, name + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(temp))) {
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(blob.length);
+            out.write(blob);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write feed snapshot", e);
+            //noinspection ResultOfMethodCallIgnored
+            temp.delete();
+            return;
+        }
+        if (!temp.renameTo(file)) {
+            //noinspection ResultOfMethodCallIgnored
+            temp.delete();
+            return;
+        }
+        // only the latest snapshot can be restored
+        final File[] previous = dir.listFiles();
+        if (previous == null) return;
+        for (File snapshot : previous) {
+            if (!snapshot.equals(file)) {
+                //noinspection ResultOfMethodCallIgnored
+                snapshot.delete();
+            }
+        }
+    }
+
+    private static byte[] readFile(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            if (in.readInt() != FORMAT_VERSION) return null;
+            final int length = in.readInt();
+            if (length < 0 || length > file.length()) return null; // truncated
+            final byte[] blob = new byte[length];
+            in.readFully(blob);
+            return blob;
+        } catch (FileNotFoundException e) {
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.data;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.plaidapp.data.api.dribbble.model.Shot;
+
+/**
+ * Holds speculatively loaded pages of each source, in page order, until they are delivered.
+ * <p>
+ * Pages are identified relative to a source's page index, i.e. the last page which has been
+ * delivered (or requested) for it; a page index of zero means that the source is disabled. The
+ * buffer for a source holds the pages directly following its page index, so once a buffered page
+ * is delivered (and the page index advanced) the remaining pages still line up.
+ * <p>
+ * Not thread safe; expected to be used from the main thread.
+ */
+class PrefetchBuffer {
+
+    static final int NO_PAGE = -1;
+
+    private final Map<String, ArrayDeque<List<Shot>>> buffers = new HashMap<>();
+    private int depth;
+
+    PrefetchBuffer(int depth) {
+        this.depth = Math.max(0, depth);
+    }
+
+    /**
+     * Set how many pages ahead of the page index to buffer. Zero disables prefetching and drops
+     * anything buffered.
+     */
+    void setDepth(int depth) {
+        this.depth = Math.max(0, depth);
+        if (this.depth == 0) {
+            clear();
+        }
+    }
+
+    int getDepth() {
+        return depth;
+    }
+
+    /**
+     * @param pageIndex the source's current page index
+     * @param metered whether the active network is metered, in which case we don't speculate
+     * @return the page of the source to prefetch next, or {@link #NO_PAGE} if none is wanted
+     */
+    int nextPage(@NonNull String key, int pageIndex, boolean metered) {
+        if (depth == 0 || metered || pageIndex <= 0) return NO_PAGE;
+        final int buffered = size(key);
+        if (buffered >= depth) return NO_PAGE;
+        return pageIndex + buffered + 1;
+    }
+
+    /**
+     * Whether the given page is still the next one to buffer for a source; it may have been loaded
+     * directly in the meantime (advancing the page index) or the source may have been reset.
+     */
+    boolean isWanted(@NonNull String key, int page, int pageIndex) {
+        return depth > 0 && pageIndex > 0 && size(key) < depth
+                && page == pageIndex + size(key) + 1;
+    }
+
+    /**
+     * Buffer a prefetched page, if it is still wanted.
+     *
+     * @return whether the page was buffered
+     */
+    boolean offer(@NonNull String key, int page, int pageIndex, @NonNull List<Shot> shots) {
+        if (!isWanted(key, page, pageIndex)) return false;
+        ArrayDeque<List<Shot>> buffer = buffers.get(key);
+        if (buffer == null) {
+            buffer = new ArrayDeque<>(depth);
+            buffers.put(key, buffer);
+        }
+        buffer.add(shots);
+        return true;
+    }
+
+    /**
+     * Remove the page following a source's page index; the caller should then advance the page
+     * index by one.
+     */
+    @Nullable
+    List<Shot> poll(@NonNull String key) {
+        final ArrayDeque<List<Shot>> buffer = buffers.get(key);
+        return buffer != null ? buffer.poll() : null;
+    }
+
+    int size(@NonNull String key) {
+        final ArrayDeque<List<Shot>> buffer = buffers.get(key);
+        return buffer != null ? buffer.size() : 0;
+    }
+
+    void clear(@NonNull String key) {
+        buffers.remove(key);
+    }
+
+    void clear() {
+        buffers.clear();
+    }
+
+}
@@ -17,11 +17,12 @@
 package io.plaidapp.data;
 
 import android.content.Context;
+import android.support.annotation.NonNull;
 
 import java.util.ArrayList;
 import java.util.List;
 
-import io.plaidapp.data.api.dribbble.DribbbleSearchService;
+import io.plaidapp.data.api.dribbble.ShotBatches;
 import io.plaidapp.data.api.dribbble.model.Shot;
 import retrofit2.Call;
 import retrofit2.Callback;
@@ -30,12 +31,16 @@ import retrofit2.Response;
 /**
  * Responsible for loading search results from dribbble and designer news. Instantiating classes are
  * responsible for providing the {code onDataLoaded} method to do something with the data.
+ * <p>
+ * Each new query starts a new generation; searches for previous queries are cancelled and any
+ * late responses for them are dropped rather than delivered.
  */
 public abstract class SearchDataManager extends BaseDataManager<List<? extends PlaidItem>> {
 
     // state
     private String query = "";
     private int page = 1;
+    private int generation = 0;
     private List<Call> inflight;
 
     public SearchDataManager(Context context) {
@@ -50,7 +55,10 @@ public abstract class SearchDataManager extends BaseDataManager<List<? extends P
         } else {
             page++;
         }
-        searchDribbble(query, page);
+        // we may load several logical pages at once on a fast connection
+        final AdaptivePager.PageRequest request = getAdaptivePager().requestFrom(page);
+        page = request.lastPage();
+        searchDribbble(query, request);
     }
 
     public void loadMore() {
@@ -61,6 +69,7 @@ public abstract class SearchDataManager extends BaseDataManager<List<? extends P
         cancelLoading();
         query = "";
         page = 1;
+        generation++;
         resetLoadingCount();
     }
 
@@ -78,19 +87,40 @@ public abstract class SearchDataManager extends BaseDataManager<List<? extends P
         return query;
     }
 
-    private void searchDribbble(final String query, final int resultsPage) {
+    /**
+     * The generation of the current query; incremented whenever the query changes or is cleared.
+     */
+    public int getQueryGeneration() {
+        return generation;
+    }
+
+    private void searchDribbble(final String query, final AdaptivePager.PageRequest request) {
+        final int searchGeneration = generation;
         loadStarted();
-        final Call<List<Shot>> dribbbleSearchCall = getDribbbleSearchApi().search(
-                query, resultsPage, DribbbleSearchService.PER_PAGE_DEFAULT,
-                DribbbleSearchService.SORT_POPULAR);
+        final Call<List<Shot>> dribbbleSearchCall = searchQuery(query, request);
+        final ShotBatches.Registration batches = listenForBatches(query, request,
+                new ShotBatches.Listener() {
+                    @Override
+                    public void onShotsParsed(@NonNull List<Shot> shots, int offset) {
+                        if (searchGeneration != generation) return;
+                        AdaptivePager.setPages(shots, request, offset);
+                        setDataSource(shots,
+                                Source.DribbbleSearchSource.DRIBBBLE_QUERY_PREFIX + query);
+                        onDataBatch(shots);
+                    }
+                });
         dribbbleSearchCall.enqueue(new Callback<List<Shot>>() {
             @Override
             public void onResponse(Call<List<Shot>> call, Response<List<Shot>> response) {
+                batches.unregister();
+                // results for a stale query; the loading count has already been reset
+                if (searchGeneration != generation) return;
                 if (response.isSuccessful()) {
                     loadFinished();
                     final List<Shot> shots = response.body();
+                    getAdaptivePager().record(response, shots != null ? shots.size() : 0);
                     if (shots != null) {
-                        setPage(shots, resultsPage);
+                        AdaptivePager.setPages(shots, request);
                         setDataSource(shots,
                                 Source.DribbbleSearchSource.DRIBBBLE_QUERY_PREFIX + query);
                         onDataLoaded(shots);
@@ -103,6 +133,8 @@ public abstract class SearchDataManager extends BaseDataManager<List<? extends P
 
             @Override
             public void onFailure(Call<List<Shot>> call, Throwable t) {
+                batches.unregister();
+                if (searchGeneration != generation) return;
                 failure(dribbbleSearchCall);
             }
         });
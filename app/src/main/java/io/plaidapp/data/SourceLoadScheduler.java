@@ -0,0 +1,265 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.data;
+
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Schedules loading of {@link Source}s, limiting the number of concurrent loads per host. Pending
+ * loads are started in order of the expected value of their next page; favouring sources higher
+ * in the filter list and those which have previously returned results.
+ * <p>
+ * Each load which is started is handed a {@link Ticket} with which to report its completion, so a
+ * source may be scheduled again (e.g. deactivated and reactivated) whilst an earlier load of it is
+ * still finishing, without the two being confused.
+ * <p>
+ * Speculative loads (prefetches) are only started in spare capacity: never ahead of a pending load
+ * which the user is waiting for, and never in the last free slot of a host, so that such a load
+ * can always start straight away.
+ * <p>
+ * Not thread safe; expected to be used from the main thread, where load callbacks are delivered.
+ */
+public class SourceLoadScheduler {
+
+    public static final int DEFAULT_MAX_CONCURRENT_PER_HOST = 3;
+
+    // each position down the filter list discounts a source's expected value by this factor
+    private static final float POSITION_DECAY = 0.9f;
+
+    /**
+     * Performs a load once the scheduler starts it.
+     */
+    public interface Load {
+
+        /**
+         * @param ticket identifies this load; must be passed to {@link #finished} once it completes
+         */
+        void start(@NonNull Ticket ticket);
+    }
+
+    /**
+     * A load which has been scheduled.
+     */
+    public static final class Ticket {
+
+        final String key;
+        final String host;
+        final int position;
+        final boolean prefetch;
+        final Load load;
+
+        Ticket(String key, String host, int position, boolean prefetch, Load load) {
+            this.key = key;
+            this.host = host;
+            this.position = position;
+            this.prefetch = prefetch;
+            this.load = load;
+        }
+    }
+
+    private final int maxConcurrentPerHost;
+    private final List<Ticket> pending = new ArrayList<>();
+    private final Set<Ticket> running = new HashSet<>();
+    private final Map<String, Integer> runningPerHost = new HashMap<>();
+    private final Map<String, int[]> history = new HashMap<>(); // source key -> [loads, hits]
+
+    public SourceLoadScheduler() {
+        this(DEFAULT_MAX_CONCURRENT_PER_HOST);
+    }
+
+    public SourceLoadScheduler(int maxConcurrentPerHost) {
+        this.maxConcurrentPerHost = Math.max(1, maxConcurrentPerHost);
+    }
+
+    /**
+     * Queue a source load. It will be started immediately if its host has capacity.
+     *
+     * @param key the source's key
+     * @param host the host the source loads from
+     * @param position the source's position in the filter list
+     * @param load performs the load; must report completion via {@link #finished}
+     */
+    public void schedule(@NonNull String key,
+                         @NonNull String host,
+                         int position,
+                         @NonNull Load load) {
+        pending.add(new Ticket(key, host, position, false, load));
+        startPending();
+    }
+
+    /**
+     * Queue a speculative load, which is started once its host has spare capacity and no other
+     * loads are waiting for it. Prefetches are not counted by {@link #cancel(String)} or
+     * {@link #cancelAll()}.
+     *
+     * @see #schedule(String, String, int, Load)
+     */
+    public void schedulePrefetch(@NonNull String key,
+                                 @NonNull String host,
+                                 int position,
+                                 @NonNull Load load) {
+        pending.add(new Ticket(key, host, position, true, load));
+        startPending();
+    }
+
+    /**
+     * Whether prefetches can ever be started: with a single slot per host there is no spare
+     * capacity to speculate in, so callers should not schedule them.
+     */
+    public boolean canPrefetch() {
+        return maxConcurrentPerHost > 1;
+    }
+
+    /**
+     * Report that a previously started load has completed, freeing capacity for pending loads.
+     * Reports for loads which the scheduler has since forgotten (see {@link #cancelAll()}) are
+     * ignored.
+     *
+     * @param hit whether the load returned any items; used to prioritise future loads
+     */
+    public void finished(@NonNull Ticket ticket, boolean hit) {
+        if (!running.remove(ticket)) return;
+        runningPerHost.put(ticket.host, runningCount(ticket.host) - 1);
+        if (ticket.prefetch) {
+            // speculative loads say little about what the user will be shown next
+            startPending();
+            return;
+        }
+        int[] stats = history.get(ticket.key);
+        if (stats == null) {
+            stats = new int[2];
+            history.put(ticket.key, stats);
+        }
+        stats[0]++;
+        if (hit) stats[1]++;
+        startPending();
+    }
+
+    /**
+     * Remove any pending (not yet started) loads for the given source, other than prefetches.
+     *
+     * @return the number of pending loads which were removed
+     */
+    public int cancel(@NonNull String key) {
+        return removePending(key, false);
+    }
+
+    /**
+     * Remove any pending (not yet started) prefetch of the given source.
+     */
+    public void cancelPrefetch(@NonNull String key) {
+        removePending(key, true);
+    }
+
+    /**
+     * Remove all pending (not yet started) prefetches.
+     */
+    public void cancelPrefetches() {
+        for (Iterator<Ticket> it = pending.iterator(); it.hasNext(); ) {
+            if (it.next().prefetch) it.remove();
+        }
+    }
+
+    /**
+     * Drop all pending loads and forget about running ones (which the caller should cancel).
+     *
+     * @return the number of pending loads which were dropped, other than prefetches
+     */
+    public int cancelAll() {
+        int dropped = 0;
+        for (Ticket load : pending) {
+            if (!load.prefetch) dropped++;
+        }
+        pending.clear();
+        running.clear();
+        runningPerHost.clear();
+        return dropped;
+    }
+
+    /**
+     * @return the number of loads currently running against the given host
+     */
+    public int runningCount(@NonNull String host) {
+        final Integer count = runningPerHost.get(host);
+        return count != null ? count : 0;
+    }
+
+    private void startPending() {
+        Ticket next;
+        while ((next = takeNext()) != null) {
+            running.add(next);
+            runningPerHost.put(next.host, runningCount(next.host) + 1);
+            next.load.start(next);
+        }
+    }
+
+    /**
+     * Remove and return the pending load with the highest expected value whose host has capacity,
+     * falling back to prefetches if there is spare capacity.
+     */
+    private Ticket takeNext() {
+        Ticket best = takeMostValuable(false, maxConcurrentPerHost);
+        if (best == null) {
+            // leave a slot free for whatever the user asks for next
+            best = takeMostValuable(true, maxConcurrentPerHost - 1);
+        }
+        return best;
+    }
+
+    private Ticket takeMostValuable(boolean prefetch, int maxRunning) {
+        Ticket best = null;
+        float bestValue = -1f;
+        for (Ticket load : pending) {
+            if (load.prefetch != prefetch || runningCount(load.host) >= maxRunning) continue;
+            final float value = expectedValue(load);
+            if (value > bestValue) {
+                best = load;
+                bestValue = value;
+            }
+        }
+        if (best != null) pending.remove(best);
+        return best;
+    }
+
+    private int removePending(String key, boolean prefetch) {
+        int removed = 0;
+        for (Iterator<Ticket> it = pending.iterator(); it.hasNext(); ) {
+            final Ticket load = it.next();
+            if (load.prefetch == prefetch && load.key.equals(key)) {
+                it.remove();
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    private float expectedValue(Ticket load) {
+        final int[] stats = history.get(load.key);
+        // Laplace smoothed hit rate so that new sources start at an even chance
+        final float hitRate = stats == null ? 0.5f : (stats[1] + 1f) / (stats[0] + 2f);
+        return hitRate * (float) Math.pow(POSITION_DECAY, Math.max(0, load.position));
+    }
+
+}
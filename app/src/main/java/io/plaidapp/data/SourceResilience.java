@@ -0,0 +1,190 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.data;
+
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Per-source failure handling: retries failed loads with jittered exponential backoff and trips a
+ * circuit breaker for sources which keep failing, so that we stop hammering them. Once the breaker
+ * has been open for a cool-down period a single probe request is allowed through; if it succeeds
+ * the source is considered healthy again.
+ * <p>
+ * Also keeps per-source counters so that we can see which sources are costing us latency.
+ */
+public class SourceResilience {
+
+    public static final int MAX_ATTEMPTS = 3;
+    private static final long BASE_BACKOFF_MS = 1000L;
+    private static final long MAX_BACKOFF_MS = 30_000L;
+    private static final int BREAKER_FAILURE_THRESHOLD = 5;
+    private static final long BREAKER_COOL_DOWN_MS = 60_000L;
+
+    private final Map<String, Stats> stats = new HashMap<>();
+    private final Random random = new Random();
+
+    /**
+     * Failure counters and circuit breaker state for a single source.
+     */
+    public static class Stats {
+
+        public static final int STATE_CLOSED = 0;
+        public static final int STATE_OPEN = 1;
+        public static final int STATE_HALF_OPEN = 2;
+
+        public int attempts;
+        public int failures;
+        public int retries;
+        public int consecutiveFailures;
+        public int state = STATE_CLOSED;
+        // time spent on failed requests and waiting to retry them
+        public long lostMillis;
+        long openedAt;
+
+        @Override
+        public String toString() {
+            return "attempts=" + attempts + ", failures=" + failures + ", retries=" + retries
+                    + ", lostMillis=" + lostMillis + ", state=" + state;
+        }
+    }
+
+    /**
+     * Whether a request for this source should be made. Moves an open breaker to half-open (and
+     * allows a single probe through) once its cool-down has elapsed.
+     */
+    public synchronized boolean allowRequest(@NonNull String key) {
+        final Stats source = getStats(key);
+        switch (source.state) {
+            case Stats.STATE_OPEN:
+                if (now() - source.openedAt < BREAKER_COOL_DOWN_MS) {
+                    return false;
+                }
+                source.state = Stats.STATE_HALF_OPEN;
+                return true;
+            case Stats.STATE_HALF_OPEN:
+                // a probe is already in flight
+                return false;
+            default:
+                return true;
+        }
+    }
+
+    public synchronized void onAttempt(@NonNull String key) {
+        getStats(key).attempts++;
+    }
+
+    public synchronized void onSuccess(@NonNull String key) {
+        final Stats source = getStats(key);
+        source.consecutiveFailures = 0;
+        source.state = Stats.STATE_CLOSED;
+    }
+
+    /**
+     * Record that a request was cancelled; a cancelled probe should not leave the breaker waiting.
+     */
+    public synchronized void onCanceled(@NonNull String key) {
+        final Stats source = getStats(key);
+        if (source.state == Stats.STATE_HALF_OPEN) {
+            // re-open but leave the cool-down elapsed so that the next request probes again
+            source.state = Stats.STATE_OPEN;
+        }
+    }
+
+    /**
+     * Record a failed attempt at loading a source.
+     *
+     * @param attempt the attempt number (starting at 1) of the request that failed
+     * @param elapsedMillis how long the failed request took
+     * @return how long to wait before retrying, or -1 if the load should not be retried
+     */
+    public synchronized long onFailure(@NonNull String key, int attempt, long elapsedMillis) {
+        final Stats source = getStats(key);
+        source.failures++;
+        source.consecutiveFailures++;
+        source.lostMillis += elapsedMillis;
+        if (source.state == Stats.STATE_HALF_OPEN
+                || source.consecutiveFailures >= BREAKER_FAILURE_THRESHOLD) {
+            source.state = Stats.STATE_OPEN;
+            source.openedAt = now();
+            return -1L;
+        }
+        if (attempt >= MAX_ATTEMPTS) return -1L;
+        source.retries++;
+        final long backoff = backoffMillis(attempt);
+        source.lostMillis += backoff;
+        return backoff;
+    }
+
+    /**
+     * Forget everything about a source, e.g. when it is removed.
+     */
+    public synchronized void reset(@NonNull String key) {
+        stats.remove(key);
+    }
+
+    /**
+     * A snapshot of the failure counters of every source we have loaded.
+     */
+    public synchronized Map<String, Stats> getAllStats() {
+        final Map<String, Stats> snapshot = new HashMap<>(stats.size());
+        for (Map.Entry<String, Stats> entry : stats.entrySet()) {
+            final Stats copy = new Stats();
+            final Stats source = entry.getValue();
+            copy.attempts = source.attempts;
+            copy.failures = source.failures;
+            copy.retries = source.retries;
+            copy.consecutiveFailures = source.consecutiveFailures;
+            copy.state = source.state;
+            copy.lostMillis = source.lostMillis;
+            copy.openedAt = source.openedAt;
+            snapshot.put(entry.getKey(), copy);
+        }
+        return Collections.unmodifiableMap(snapshot);
+    }
+
+    /**
+     * The current time in milliseconds, for timing cool-downs; overridden by tests.
+     */
+    long now() {
+        return SystemClock.elapsedRealtime();
+    }
+
+    /**
+     * Exponential backoff with jitter: a random delay between half and all of the exponential
+     * delay, so that sources failing together don't retry in lockstep.
+     */
+    private long backoffMillis(int attempt) {
+        final long exponential = Math.min(MAX_BACKOFF_MS, BASE_BACKOFF_MS << (attempt - 1));
+        return exponential / 2 + (long) (random.nextDouble() * (exponential / 2));
+    }
+
+    private Stats getStats(String key) {
+        Stats source = stats.get(key);
+        if (source == null) {
+            source = new Stats();
+            stats.put(key, source);
+        }
+        return source;
+    }
+
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.data.api;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+
+import java.io.File;
+
+import okhttp3.Cache;
+import okhttp3.OkHttpClient;
+
+/**
+ * Provides the app wide {@link OkHttpClient}. Sharing a single client means every data manager (and
+ * Glide) shares one connection pool, dispatcher and HTTP disk cache, so warm connections and cached
+ * pages survive across screens.
+ */
+public class HttpClientProvider {
+
+    private static final String HTTP_CACHE_DIR = "http";
+    private static final long HTTP_CACHE_SIZE = 10 * 1024 * 1024; // 10MB
+
+    private static volatile OkHttpClient client;
+    private static volatile OkHttpClient imageClient;
+
+    private HttpClientProvider() { }
+
+    /**
+     * The shared client used for API requests; backed by a sized disk cache.
+     */
+    public static OkHttpClient getClient(@NonNull Context context) {
+        if (client == null) {
+            synchronized (HttpClientProvider.class) {
+                if (client == null) {
+                    final File cacheDir =
+                            new File(context.getApplicationContext().getCacheDir(), HTTP_CACHE_DIR);
+                    client = new OkHttpClient.Builder()
+                            .cache(new Cache(cacheDir, HTTP_CACHE_SIZE))
+                            .build();
+                }
+            }
+        }
+        return client;
+    }
+
+    /**
+     * A client for image loading. Shares the connection pool & dispatcher of {@link #getClient} but
+     * skips the HTTP cache as Glide maintains its own disk cache.
+     */
+    public static OkHttpClient getImageClient(@NonNull Context context) {
+        if (imageClient == null) {
+            synchronized (HttpClientProvider.class) {
+                if (imageClient == null) {
+                    imageClient = getClient(context).newBuilder()
+                            .cache(null)
+                            .build();
+                }
+            }
+        }
+        return imageClient;
+    }
+
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.data.api.dribbble;
+
+import android.support.annotation.NonNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import io.plaidapp.data.api.dribbble.model.Shot;
+import okhttp3.Request;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * A {@link DribbbleSearchService} which coalesces identical requests. Concurrent callers asking for
+ * the same (query, page, page size, sort) attach to a single in-flight network call and each
+ * receive the parsed results. Cancellation is reference counted: the underlying call is only
+ * cancelled once every caller attached to it has cancelled.
+ * <p>
+ * Each caller receives its own copies of the shots, as data managers go on to mutate them.
+ * <p>
+ * Only {@link Call#enqueue(Callback) asynchronous} calls are coalesced. A synchronous
+ * {@link Call#execute()} makes its own request: waiting on a shared call would mean waiting for a
+ * callback delivered on the callback executor, which deadlocks if that is the calling thread.
+ */
+public class CoalescingDribbbleSearchService implements DribbbleSearchService {
+
+    private final DribbbleSearchService delegate;
+    private final Executor callbackExecutor;
+    private final Map<String, InflightSearch> inflight = new HashMap<>();
+
+    /**
+     * @param delegate the service performing the actual requests
+     * @param callbackExecutor the executor on which cancellations are reported; should match the
+     *                         executor the delegate delivers callbacks on
+     */
+    public CoalescingDribbbleSearchService(@NonNull DribbbleSearchService delegate,
+                                           @NonNull Executor callbackExecutor) {
+        this.delegate = delegate;
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    @Override
+    public Call<List<Shot>> search(String query, Integer page, Integer pageSize, String sort) {
+        return new SharedCall(query, page, pageSize, sort);
+    }
+
+    private static String key(String query, Integer page, Integer pageSize, String sort) {
+        return query + '\u0000' + page + '\u0000' + pageSize + '\u0000' + sort;
+    }
+
+    /**
+     * Attach a caller to the in-flight search for its key, starting one if necessary.
+     */
+    private void attach(SharedCall caller, Callback<List<Shot>> callback) {
+        InflightSearch search;
+        boolean start = false;
+        synchronized (inflight) {
+            search = inflight.get(caller.key);
+            if (search == null) {
+                search = new InflightSearch(caller.key, delegate.search(
+                        caller.query, caller.page, caller.pageSize, caller.sort));
+                inflight.put(caller.key, search);
+                start = true;
+            }
+            search.subscribers.put(caller, callback);
+        }
+        if (start) search.start();
+    }
+
+    /**
+     * Detach a caller from its in-flight search, cancelling the network call if it was the last.
+     *
+     * @return the callback that was attached, or null if the caller was not attached
+     */
+    private Callback<List<Shot>> detach(SharedCall caller) {
+        InflightSearch search;
+        Callback<List<Shot>> callback;
+        boolean cancel = false;
+        synchronized (inflight) {
+            search = inflight.get(caller.key);
+            if (search == null) return null;
+            callback = search.subscribers.remove(caller);
+            if (callback != null && search.subscribers.isEmpty()) {
+                inflight.remove(caller.key);
+                cancel = true;
+            }
+        }
+        if (cancel) search.call.cancel();
+        return callback;
+    }
+
+    /**
+     * A single network request shared by one or more {@link SharedCall}s.
+     */
+    private class InflightSearch implements Callback<List<Shot>> {
+
+        final String key;
+        final Call<List<Shot>> call;
+        final Map<SharedCall, Callback<List<Shot>>> subscribers = new HashMap<>(2);
+
+        InflightSearch(String key, Call<List<Shot>> call) {
+            this.key = key;
+            this.call = call;
+        }
+
+        void start() {
+            call.enqueue(this);
+        }
+
+        @Override
+        public void onResponse(Call<List<Shot>> call, Response<List<Shot>> response) {
+            final Map<SharedCall, Callback<List<Shot>>> delivering = complete();
+            if (delivering == null) return;
+            final List<Shot> shots = response.body();
+            if (!response.isSuccessful() || shots == null || delivering.size() == 1) {
+                for (Map.Entry<SharedCall, Callback<List<Shot>>> subscriber
+                        : delivering.entrySet()) {
+                    subscriber.getValue().onResponse(subscriber.getKey(), response);
+                }
+                return;
+            }
+            // give each caller its own shots as they go on to modify them; copy them all before
+            // delivering any, so that no copy is taken of shots another caller has modified
+            final List<List<Shot>> copies = new ArrayList<>(delivering.size());
+            copies.add(shots);
+            for (int i = 1; i < delivering.size(); i++) {
+                copies.add(ShotCopies.copy(shots));
+            }
+            int i = 0;
+            for (Map.Entry<SharedCall, Callback<List<Shot>>> subscriber : delivering.entrySet()) {
+                subscriber.getValue().onResponse(
+                        subscriber.getKey(), Response.success(copies.get(i++), response.raw()));
+            }
+        }
+
+        @Override
+        public void onFailure(Call<List<Shot>> call, Throwable t) {
+            final Map<SharedCall, Callback<List<Shot>>> delivering = complete();
+            if (delivering == null) return;
+            for (Map.Entry<SharedCall, Callback<List<Shot>>> subscriber : delivering.entrySet()) {
+                subscriber.getValue().onFailure(subscriber.getKey(), t);
+            }
+        }
+
+        /**
+         * Remove this search from the in-flight map and return the subscribers to deliver to.
+         */
+        private Map<SharedCall, Callback<List<Shot>>> complete() {
+            synchronized (inflight) {
+                if (inflight.get(key) == this) {
+                    inflight.remove(key);
+                }
+                if (subscribers.isEmpty()) return null;
+                final Map<SharedCall, Callback<List<Shot>>> delivering =
+                        new HashMap<>(subscribers);
+                subscribers.clear();
+                return delivering;
+            }
+        }
+    }
+
+    /**
+     * A caller's handle onto a (possibly shared) search request.
+     */
+    private class SharedCall implements Call<List<Shot>> {
+
+        final String query;
+        final Integer page;
+        final Integer pageSize;
+        final String sort;
+        final String key;
+        private boolean executed;
+        private volatile boolean canceled;
+
+        SharedCall(String query, Integer page, Integer pageSize, String sort) {
+            this.query = query;
+            this.page = page;
+            this.pageSize = pageSize;
+            this.sort = sort;
+            key = key(query, page, pageSize, sort);
+        }
+
+        @Override
+        public Response<List<Shot>> execute() throws IOException {
+            markExecuted();
+            // synchronous calls are not shared; see the class documentation
+            return delegate.search(query, page, pageSize, sort).execute();
+        }
+
+        @Override
+        public void enqueue(Callback<List<Shot>> callback) {
+            markExecuted();
+            if (canceled) {
+                reportCanceled(callback);
+                return;
+            }
+            attach(this, callback);
+        }
+
+        @Override
+        public synchronized boolean isExecuted() {
+            return executed;
+        }
+
+        @Override
+        public void cancel() {
+            if (canceled) return;
+            canceled = true;
+            final Callback<List<Shot>> callback = detach(this);
+            if (callback != null) {
+                reportCanceled(callback);
+            }
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return canceled;
+        }
+
+        @Override
+        public Call<List<Shot>> clone() {
+            return new SharedCall(query, page, pageSize, sort);
+        }
+
+        @Override
+        public Request request() {
+            return delegate.search(query, page, pageSize, sort).request();
+        }
+
+        private synchronized void markExecuted() {
+            if (executed) throw new IllegalStateException("Already executed.");
+            executed = true;
+        }
+
+        /**
+         * Mirror OkHttp's behaviour of reporting cancellation as an asynchronous failure.
+         */
+        private void reportCanceled(final Callback<List<Shot>> callback) {
+            callbackExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    callback.onFailure(SharedCall.this, new IOException("Canceled"));
+                }
+            });
+        }
+    }
+
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.data.api.dribbble;
+
+import android.support.annotation.NonNull;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.List;
+
+import io.plaidapp.data.api.dribbble.model.Shot;
+import io.plaidapp.util.BoundedLruCache;
+import okhttp3.Request;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+import retrofit2.http.GET;
+import retrofit2.http.Header;
+import retrofit2.http.Query;
+
+/**
+ * A {@link DribbbleSearchService} which revalidates search pages with conditional GETs. The
+ * {@code ETag} / {@code Last-Modified} validators of each (query, page, page size, sort) are
+ * remembered alongside the parsed results; if the server responds {@code 304 Not Modified} the
+ * previous results are returned without downloading or parsing the page again.
+ */
+public class ConditionalDribbbleSearchService implements DribbbleSearchService {
+
+    private static final int MAX_ENTRIES = 32;
+
+    /**
+     * The underlying API, accepting conditional request headers (which are omitted when null).
+     */
+    public interface ConditionalSearchApi {
+
+        @GET("search")
+        Call<List<Shot>> search(@Query("q") String query,
+                                @Query("page") Integer page,
+                                @Query("per_page") Integer pageSize,
+                                @Query("s") @SortOrder String sort,
+                                @Header("If-None-Match") String ifNoneMatch,
+                                @Header("If-Modified-Since") String ifModifiedSince);
+    }
+
+    private final ConditionalSearchApi api;
+    private final BoundedLruCache<String, ValidatedPage> pages =
+            new BoundedLruCache<>(MAX_ENTRIES);
+
+    public ConditionalDribbbleSearchService(@NonNull ConditionalSearchApi api) {
+        this.api = api;
+    }
+
+    @Override
+    public Call<List<Shot>> search(String query, Integer page, Integer pageSize, String sort) {
+        return new ConditionalCall(query, page, pageSize, sort);
+    }
+
+    /**
+     * Parsed results of a page along with the validators needed to revalidate it.
+     */
+    private static class ValidatedPage {
+
+        final String etag;
+        final String lastModified;
+        final List<Shot> shots;
+
+        ValidatedPage(String etag, String lastModified, List<Shot> shots) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.shots = shots;
+        }
+    }
+
+    private class ConditionalCall implements Call<List<Shot>> {
+
+        final String query;
+        final Integer page;
+        final Integer pageSize;
+        final String sort;
+        final String key;
+        final ValidatedPage cached;
+        final Call<List<Shot>> call;
+
+        ConditionalCall(String query, Integer page, Integer pageSize, String sort) {
+            this.query = query;
+            this.page = page;
+            this.pageSize = pageSize;
+            this.sort = sort;
+            key = query + '\u0000' + page + '\u0000' + pageSize + '\u0000' + sort;
+            cached = pages.get(key);
+            call = cached != null
+                    ? api.search(query, page, pageSize, sort, cached.etag, cached.lastModified)
+                    : api.search(query, page, pageSize, sort, null, null);
+        }
+
+        @Override
+        public Response<List<Shot>> execute() throws IOException {
+            return handle(call.execute());
+        }
+
+        @Override
+        public void enqueue(final Callback<List<Shot>> callback) {
+            call.enqueue(new Callback<List<Shot>>() {
+                @Override
+                public void onResponse(Call<List<Shot>> call, Response<List<Shot>> response) {
+                    callback.onResponse(ConditionalCall.this, handle(response));
+                }
+
+                @Override
+                public void onFailure(Call<List<Shot>> call, Throwable t) {
+                    callback.onFailure(ConditionalCall.this, t);
+                }
+            });
+        }
+
+        @Override
+        public boolean isExecuted() {
+            return call.isExecuted();
+        }
+
+        @Override
+        public void cancel() {
+            call.cancel();
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return call.isCanceled();
+        }
+
+        @Override
+        public Call<List<Shot>> clone() {
+            return new ConditionalCall(query, page, pageSize, sort);
+        }
+
+        @Override
+        public Request request() {
+            return call.request();
+        }
+
+        /**
+         * Substitute the previously parsed results for a 304 and remember validators of a 200.
+         */
+        private Response<List<Shot>> handle(Response<List<Shot>> response) {
+            if (response.code() == HttpURLConnection.HTTP_NOT_MODIFIED && cached != null) {
+                // callers mutate the shots they receive, so each gets its own copies
+                final List<Shot> shots = ShotCopies.copy(cached.shots);
+                // present as a successful response; the network response still records the 304
+                final okhttp3.Response raw = response.raw().newBuilder()
+                        .code(HttpURLConnection.HTTP_OK)
+                        .build();
+                return Response.success(shots, raw);
+            }
+            final List<Shot> shots = response.body();
+            if (response.isSuccessful() && shots != null) {
+                final String etag = response.headers().get("ETag");
+                final String lastModified = response.headers().get("Last-Modified");
+                if (etag != null || lastModified != null) {
+                    // keep copies, unaffected by the caller's changes to the shots delivered
+                    pages.put(key, new ValidatedPage(etag, lastModified, ShotCopies.copy(shots)));
+                } else {
+                    pages.remove(key);
+                }
+            }
+            return response;
+        }
+    }
+
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.data.api.dribbble;
+
+import android.support.annotation.NonNull;
+
+import java.util.List;
+
+import io.plaidapp.data.api.EnvelopePayload;
+import io.plaidapp.data.api.dribbble.model.Shot;
+import retrofit2.Call;
+import retrofit2.http.GET;
+import retrofit2.http.Query;
+
+/**
+ * Search against an endpoint serving shots as JSON, enveloped as {@code { "shots": [ … ] }}, e.g.
+ * a local stand-in for the scraped search pages. Responses are decoded by the
+ * {@link io.plaidapp.data.api.DenvelopingConverter} using the streaming {@link ShotTypeAdapter}.
+ */
+public interface DribbbleJsonSearchService {
+
+    @EnvelopePayload("shots")
+    @GET("search")
+    Call<List<Shot>> search(@Query("q") String query,
+                            @Query("page") Integer page,
+                            @Query("per_page") Integer pageSize,
+                            @Query("s") @DribbbleSearchService.SortOrder String sort);
+
+    /**
+     * Adapts the JSON service to the {@link DribbbleSearchService} used by data managers.
+     */
+    class Adapter implements DribbbleSearchService {
+
+        private final DribbbleJsonSearchService api;
+
+        public Adapter(@NonNull DribbbleJsonSearchService api) {
+            this.api = api;
+        }
+
+        @Override
+        public Call<List<Shot>> search(String query, Integer page, Integer pageSize,
+                                       String sort) {
+            return api.search(query, page, pageSize, sort);
+        }
+    }
+
+}
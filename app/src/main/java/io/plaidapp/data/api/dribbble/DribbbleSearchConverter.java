@@ -16,23 +16,19 @@
 
 package io.plaidapp.data.api.dribbble;
 
-import android.text.TextUtils;
+import android.util.Log;
 
-import org.jsoup.Jsoup;
 import org.jsoup.nodes.Element;
-import org.jsoup.select.Elements;
 
 import java.io.IOException;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Type;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.regex.Pattern;
 
-import io.plaidapp.data.api.dribbble.model.Images;
 import io.plaidapp.data.api.dribbble.model.Shot;
 import okhttp3.ResponseBody;
 import retrofit2.Converter;
@@ -46,68 +42,204 @@ public class DribbbleSearchConverter implements Converter<ResponseBody, List<Sho
     /** Factory for creating converter. We only care about decoding responses. **/
     public static final class Factory extends Converter.Factory {
 
+        private final boolean parallel;
+
+        public Factory() {
+            this(false);
+        }
+
+        /**
+         * @param parallel whether to parse the shots of large pages in parallel
+         */
+        public Factory(boolean parallel) {
+            this.parallel = parallel;
+        }
+
         @Override
         public Converter<ResponseBody, ?> responseBodyConverter(Type type,
                                                                 Annotation[] annotations,
                                                                 Retrofit retrofit) {
-            return INSTANCE;
+            return parallel ? PARALLEL : INSTANCE;
         }
 
     }
 
-    private DribbbleSearchConverter() { }
-    static final DribbbleSearchConverter INSTANCE = new DribbbleSearchConverter();
+    DribbbleSearchConverter(boolean parallel, ShotParseCache parseCache) {
+        this.parallel = parallel;
+        this.parseCache = parseCache;
+    }
 
+    private static final String TAG = "DribbbleSearch";
     private static final String HOST = "https://dribbble.com";
+    private static final ShotExtractor EXTRACTOR = new ShotExtractor(HOST);
     private static final Pattern PATTERN_PLAYER_ID =
             Pattern.compile("users/(\\d+?)/", Pattern.DOTALL);
-    private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("MMMM d, yyyy");
+    // pages smaller than this aren't worth the overhead of forking
+    private static final int PARALLEL_THRESHOLD = 2 * DribbbleSearchService.PER_PAGE_DEFAULT;
+    // the most shots a single parse task handles before splitting
+    private static final int PARSE_TASK_SIZE = 6;
+    private static ForkJoinPool parsePool;
+    // enough for the first few pages of each source
+    static final int PARSE_CACHE_SIZE = 256;
+    private static final ShotParseCache PARSE_CACHE = new ShotParseCache(PARSE_CACHE_SIZE);
+    static final DribbbleSearchConverter INSTANCE = new DribbbleSearchConverter(false, PARSE_CACHE);
+    static final DribbbleSearchConverter PARALLEL = new DribbbleSearchConverter(true, PARSE_CACHE);
+
+    private final boolean parallel;
+    private final ShotParseCache parseCache;
 
     @Override
     public List<Shot> convert(ResponseBody value) throws IOException {
-        final Elements shotElements =
-                Jsoup.parse(value.string(), HOST).select("li[id^=screenshot]");
-        final List<Shot> shots = new ArrayList<>(shotElements.size());
-        for (Element element : shotElements) {
-            final Shot shot = parseShot(element, DATE_FORMAT);
+        // stream shot elements out of the page rather than building a DOM of all of it
+        final ShotElementReader reader = new ShotElementReader(value.source(), HOST);
+        // listeners waiting for shots from this response (if any), known once it is being read
+        final ShotBatches.Sink sink = ShotBatches.reading();
+        try {
+            return parallel ? convertParallel(reader, sink) : convertSequential(reader, sink);
+        } finally {
+            value.close();
+        }
+    }
+
+    /**
+     * Parse each shot element as it arrives, passing shots on to any batch listeners as we go.
+     */
+    private List<Shot> convertSequential(ShotElementReader reader,
+                                         ShotBatches.Sink sink) throws IOException {
+        final List<Shot> shots = new ArrayList<>();
+        String html;
+        while ((html = reader.nextHtml()) != null) {
+            final Shot shot = parse(html);
             if (shot != null) {
                 shots.add(shot);
+                if (sink != null) sink.add(shot);
             }
         }
+        if (sink != null) sink.flush();
         return shots;
     }
 
-    private static Shot parseShot(Element element, SimpleDateFormat dateFormat) {
-        final Element descriptionBlock = element.select("a.dribbble-over").first();
-        // API responses wrap description in a <p> tag. Do the same for consistent display.
-        String description = descriptionBlock.select("span.comment").text().trim();
-        if (!TextUtils.isEmpty(description)) {
-            description = "<p>" + description + "</p>";
+    /**
+     * Read all of the shot elements then parse them across a fork-join pool, keeping page order.
+     * If anyone is listening for batches then the first page's worth of shots are parsed (and
+     * passed on) as they arrive so that they can be displayed without waiting for the rest.
+     */
+    private List<Shot> convertParallel(ShotElementReader reader,
+                                       ShotBatches.Sink sink) throws IOException {
+        final List<Shot> shots = new ArrayList<>();
+        final List<String> elements = new ArrayList<>();
+        String html;
+        while ((html = reader.nextHtml()) != null) {
+            if (sink != null && elements.isEmpty()
+                    && shots.size() < DribbbleSearchService.PER_PAGE_DEFAULT) {
+                final Shot shot = parse(html);
+                if (shot != null) {
+                    shots.add(shot);
+                    sink.add(shot);
+                }
+            } else {
+                elements.add(html);
+            }
+        }
+        if (sink != null) sink.flush();
+        final Shot[] parsed = new Shot[elements.size()];
+        final ParseTask task = new ParseTask(this, elements, parsed, 0, elements.size());
+        if (elements.size() < PARALLEL_THRESHOLD) {
+            task.parse();
+        } else {
+            getParsePool().invoke(task);
+        }
+        for (Shot shot : parsed) {
+            if (shot != null) {
+                shots.add(shot);
+            }
         }
-        String imgUrl = element.select("img").first().attr("src");
-        if (imgUrl.contains("_teaser.")) {
-            imgUrl = imgUrl.replace("_teaser.", ".");
+        return shots;
+    }
+
+    /**
+     * The cache of previously parsed shots; exposes hit & miss counts e.g. to size it.
+     */
+    public static ShotParseCache getParseCache() {
+        return PARSE_CACHE;
+    }
+
+    /**
+     * Parse a shot element's markup, unless we have parsed identical markup before.
+     */
+    private Shot parse(String html) {
+        final long digest = ShotParseCache.digest(html);
+        Shot shot = parseCache.get(digest);
+        if (shot != null) return shot;
+        shot = parseElement(html);
+        if (shot != null) {
+            parseCache.put(digest, shot);
         }
-        Date createdAt = null;
+        return shot;
+    }
+
+    /**
+     * Build a shot element's DOM & extract its shot; the work the parse cache saves.
+     */
+    Shot parseElement(String html) {
+        final Element element = ShotElementReader.parse(html, HOST);
+        return element != null ? extract(element) : null;
+    }
+
+    private static Shot extract(Element element) {
         try {
-            createdAt = dateFormat.parse(descriptionBlock.select("em.timestamp").first().text());
-        } catch (ParseException e) { }
-
-        return new Shot.Builder()
-                .setId(Long.parseLong(element.id().replace("screenshot-", "")))
-                .setHtmlUrl(HOST + element.select("a.dribbble-link").first().attr("href"))
-                .setTitle(descriptionBlock.select("strong").first().text())
-                .setDescription(description)
-                .setImages(new Images(null, imgUrl, null))
-                .setAnimated(element.select("div.gif-indicator").first() != null)
-                .setCreatedAt(createdAt)
-                .setLikesCount(Long.parseLong(element.select("li.fav").first().child(0).text()
-                        .replaceAll(",", "")))
-                .setCommentsCount(Long.parseLong(element.select("li.cmnt").first().child(0).text
-                        ().replaceAll(",", "")))
-                .setViewsCount(Long.parseLong(element.select("li.views").first().child(0)
-                        .text().replaceAll(",", "")))
-                .build();
+            return EXTRACTOR.extract(element);
+        } catch (ShotExtractor.MarkupException e) {
+            // skip the shot but make it obvious which part of the markup changed
+            Log.w(TAG, e.getMessage());
+            return null;
+        }
+    }
+
+    private static synchronized ForkJoinPool getParsePool() {
+        if (parsePool == null) {
+            parsePool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        }
+        return parsePool;
+    }
+
+    /**
+     * Parses shot elements [start, end) into the same positions of the results array, splitting
+     * the range in half until it is small enough to parse directly.
+     */
+    private static class ParseTask extends RecursiveAction {
+
+        private final DribbbleSearchConverter converter;
+        private final List<String> elements;
+        private final Shot[] results;
+        private final int start;
+        private final int end;
+
+        ParseTask(DribbbleSearchConverter converter, List<String> elements, Shot[] results,
+                  int start, int end) {
+            this.converter = converter;
+            this.elements = elements;
+            this.results = results;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= PARSE_TASK_SIZE) {
+                parse();
+            } else {
+                final int middle = (start + end) >>> 1;
+                invokeAll(new ParseTask(converter, elements, results, start, middle),
+                        new ParseTask(converter, elements, results, middle, end));
+            }
+        }
+
+        void parse() {
+            for (int i = start; i < end; i++) {
+                results[i] = converter.parse(elements.get(i));
+            }
+        }
     }
 
 }
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.data.api.dribbble;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+import io.plaidapp.data.api.dribbble.model.Images;
+
+/**
+ * Streams {@link Images} to & from JSON without reflection.
+ */
+public class ImagesTypeAdapter extends TypeAdapter<Images> {
+
+    @Override
+    public void write(JsonWriter out, Images images) throws IOException {
+        if (images == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("hidpi").value(images.hidpi);
+        out.name("normal").value(images.normal);
+        out.name("teaser").value(images.getTeaser());
+        out.endObject();
+    }
+
+    @Override
+    public Images read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        String hidpi = null;
+        String normal = null;
+        String teaser = null;
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "hidpi":
+                    hidpi = ShotTypeAdapter.nextString(in);
+                    break;
+                case "normal":
+                    normal = ShotTypeAdapter.nextString(in);
+                    break;
+                case "teaser":
+                    teaser = ShotTypeAdapter.nextString(in);
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return new Images(hidpi, normal, teaser);
+    }
+
+}
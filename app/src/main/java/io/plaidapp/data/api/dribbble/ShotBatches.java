@@ -0,0 +1,229 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.data.api.dribbble;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+
+import io.plaidapp.data.api.dribbble.model.Shot;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+
+/**
+ * Delivers shots whilst a search page is still being downloaded & parsed, so that the first
+ * results can be displayed before the whole page has arrived.
+ * <p>
+ * Listeners are registered for a search's parameters. The {@link #interceptor()} of the client
+ * making searches matches each response to its listeners and attaches them to its body; Retrofit
+ * only hands converters its own wrapper of that body, so the body makes them available to
+ * {@link DribbbleSearchConverter} on the thread reading it, until it is closed. Batches are only
+ * a preview; the complete page is still delivered through the normal {@link retrofit2.Callback}.
+ */
+public final class ShotBatches {
+
+    public interface Listener {
+
+        /**
+         * @param shots this listener's own copies of the shots, which it may modify
+         * @param offset the position of the first shot of this batch within the page
+         */
+        void onShotsParsed(@NonNull List<Shot> shots, int offset);
+    }
+
+    /**
+     * A listener's registration, to be {@link #unregister()}ed once its search completes.
+     */
+    public static final class Registration {
+
+        private final ShotBatches batches;
+        private final String key;
+        private final Listener listener;
+        private final Executor executor;
+
+        Registration(ShotBatches batches, String key, Listener listener, Executor executor) {
+            this.batches = batches;
+            this.key = key;
+            this.listener = listener;
+            this.executor = executor;
+        }
+
+        public void unregister() {
+            synchronized (batches.listeners) {
+                final List<Registration> registrations = batches.listeners.get(key);
+                if (registrations == null) return;
+                registrations.remove(this);
+                if (registrations.isEmpty()) batches.listeners.remove(key);
+            }
+        }
+
+        void dispatch(final List<Shot> shots, final int offset) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    listener.onShotsParsed(shots, offset);
+                }
+            });
+        }
+    }
+
+    // the sink of the response body being read on each thread, if it has listeners
+    private static final ThreadLocal<Sink> READING = new ThreadLocal<>();
+
+    private final Map<String, List<Registration>> listeners = new HashMap<>();
+
+    /**
+     * Listen for shots parsed by searches with these parameters.
+     *
+     * @param executor the executor on which to notify the listener
+     */
+    public Registration register(String query,
+                                 Integer page,
+                                 Integer pageSize,
+                                 String sort,
+                                 @NonNull Listener listener,
+                                 @NonNull Executor executor) {
+        final Registration registration =
+                new Registration(this, key(query, page, pageSize, sort), listener, executor);
+        synchronized (listeners) {
+            List<Registration> registrations = listeners.get(registration.key);
+            if (registrations == null) {
+                registrations = new CopyOnWriteArrayList<>();
+                listeners.put(registration.key, registrations);
+            }
+            registrations.add(registration);
+        }
+        return registration;
+    }
+
+    /**
+     * An interceptor attaching the listeners of each search to its response; must be installed on
+     * the client used for searching.
+     */
+    public Interceptor interceptor() {
+        return new Interceptor() {
+            @Override
+            public Response intercept(Chain chain) throws IOException {
+                final HttpUrl url = chain.request().url();
+                final String key = key(url.queryParameter("q"), url.queryParameter("page"),
+                        url.queryParameter("per_page"), url.queryParameter("s"));
+                final Response response = chain.proceed(chain.request());
+                final List<Registration> registrations;
+                synchronized (listeners) {
+                    registrations = listeners.get(key);
+                }
+                if (registrations == null || response.body() == null) return response;
+                return response.newBuilder()
+                        .body(new BatchingBody(response.body(), new Sink(registrations)))
+                        .build();
+            }
+        };
+    }
+
+    /**
+     * The sink for the response body being read on this thread, if anyone is listening to it.
+     * Only valid after the body's source has been opened & before it is closed.
+     */
+    @Nullable
+    static Sink reading() {
+        return READING.get();
+    }
+
+    private static String key(Object query, Object page, Object pageSize, Object sort) {
+        return String.valueOf(query) + '\u0000' + page + '\u0000' + pageSize + '\u0000' + sort;
+    }
+
+    /**
+     * A response body carrying the sink for its shots, visible to the thread reading it.
+     */
+    private static final class BatchingBody extends ResponseBody {
+
+        private final ResponseBody delegate;
+        private final Sink sink;
+
+        BatchingBody(ResponseBody delegate, Sink sink) {
+            this.delegate = delegate;
+            this.sink = sink;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return delegate.contentType();
+        }
+
+        @Override
+        public long contentLength() {
+            return delegate.contentLength();
+        }
+
+        @Override
+        public BufferedSource source() {
+            READING.set(sink);
+            return delegate.source();
+        }
+
+        @Override
+        public void close() {
+            // closed however the body was used, e.g. buffered by Retrofit for an error or a 304
+            if (READING.get() == sink) READING.remove();
+            delegate.close();
+        }
+    }
+
+    /**
+     * Collects parsed shots and emits them to listeners in batches, each listener receiving its
+     * own copies (as listeners modify them, as will whoever receives the complete page).
+     */
+    static final class Sink {
+
+        private static final int BATCH_SIZE = 4;
+
+        private final List<Registration> registrations;
+        private List<Shot> batch = new ArrayList<>(BATCH_SIZE);
+        private int offset = 0;
+
+        Sink(List<Registration> registrations) {
+            this.registrations = registrations;
+        }
+
+        void add(Shot shot) {
+            batch.add(shot);
+            if (batch.size() == BATCH_SIZE) flush();
+        }
+
+        void flush() {
+            if (batch.isEmpty()) return;
+            for (Registration registration : registrations) {
+                registration.dispatch(ShotCopies.copy(batch), offset);
+            }
+            offset += batch.size();
+            batch.clear();
+        }
+    }
+
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.data.api.dribbble;
+
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.plaidapp.data.api.dribbble.model.Shot;
+
+/**
+ * Copies shots which are handed out more than once. Data managers mutate the shots they receive
+ * (page, data source, weight…) so any shot which is shared between callers or kept around to be
+ * delivered again must be copied, leaving each caller with its own instances.
+ */
+final class ShotCopies {
+
+    private ShotCopies() { }
+
+    /**
+     * @return a copy of the shot's data, without any per-caller state
+     */
+    static Shot copy(@NonNull Shot shot) {
+        // images & tags are immutable so may be shared
+        return new Shot(shot.id, shot.title, shot.description, shot.width, shot.height,
+                shot.images, shot.views_count, shot.likes_count, shot.comments_count,
+                shot.attachments_count, shot.rebounds_count, shot.buckets_count,
+                shot.getCreatedAtMillis(), shot.getUpdatedAtMillis(), shot.html_url,
+                shot.animated, shot.tags);
+    }
+
+    /**
+     * @return a new list holding copies of each of the shots
+     */
+    static List<Shot> copy(@NonNull List<Shot> shots) {
+        final List<Shot> copies = new ArrayList<>(shots.size());
+        for (Shot shot : shots) {
+            copies.add(copy(shot));
+        }
+        return copies;
+    }
+
+}
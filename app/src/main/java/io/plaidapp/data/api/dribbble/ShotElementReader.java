@@ -0,0 +1,165 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.data.api.dribbble;
+
+import android.support.annotation.Nullable;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Element;
+
+import java.io.IOException;
+
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ByteString;
+
+/**
+ * Streams shot elements out of a Dribbble search results page.
+ * <p>
+ * Rather than buffering the whole page and building a DOM of it, this scans the response as it
+ * arrives, discarding everything up until a {@code <li id="screenshot-…">} element. Only that
+ * element's markup is captured and parsed, so we only ever hold a single shot's worth of the page
+ * in memory.
+ * <p>
+ * This relies on the (lower case, double quoted) markup Dribbble generates rather than attempting
+ * to tokenize arbitrary HTML.
+ */
+class ShotElementReader {
+
+    private static final ByteString LI_OPEN = ByteString.encodeUtf8("<li");
+    private static final ByteString LI_CLOSE = ByteString.encodeUtf8("</li");
+    private static final String SHOT_ID_ATTR = "id=\"screenshot-";
+
+    private final BufferedSource source;
+    private final String baseUri;
+
+    ShotElementReader(BufferedSource source, String baseUri) {
+        this.source = source;
+        this.baseUri = baseUri;
+    }
+
+    /**
+     * @return the next shot element in the page, or null once the page is exhausted.
+     */
+    @Nullable
+    Element next() throws IOException {
+        final String html = nextHtml();
+        return html != null ? parse(html, baseUri) : null;
+    }
+
+    /**
+     * Parse markup returned by {@link #nextHtml()}; this may happen on any thread.
+     */
+    @Nullable
+    static Element parse(String html, String baseUri) {
+        // parse within a list so that the <li> is kept as is
+        final Element list = Jsoup.parseBodyFragment(html, baseUri).body().child(0);
+        return list.children().isEmpty() ? null : list.child(0);
+    }
+
+    /**
+     * @return the markup of the next shot element, wrapped in a {@code <ul>}, or null once the
+     * page is exhausted.
+     */
+    @Nullable
+    String nextHtml() throws IOException {
+        final Buffer buffer = source.buffer();
+        while (seek(LI_OPEN, null)) {
+            if (!startsWithTag(LI_OPEN)) {
+                buffer.skip(LI_OPEN.size());
+                continue;
+            }
+            final ByteString tag = readTag();
+            if (tag == null) return null;
+            if (!tag.utf8().contains(SHOT_ID_ATTR)) continue;
+
+            final Buffer element = new Buffer().writeUtf8("<ul>").write(tag);
+            int depth = 1;
+            while (depth > 0) {
+                if (!seek(null, element)) return null; // truncated
+                if (startsWithTag(LI_CLOSE)) {
+                    depth--;
+                } else if (startsWithTag(LI_OPEN)) {
+                    depth++;
+                }
+                final ByteString nested = readTag();
+                if (nested == null) return null;
+                element.write(nested);
+            }
+            return element.writeUtf8("</ul>").readUtf8();
+        }
+        return null;
+    }
+
+    /**
+     * Advance until the buffered data starts with {@code bytes} (or with a tag if null). Data
+     * passed over is moved to {@code capture} if given, otherwise discarded.
+     *
+     * @return false if the source was exhausted first
+     */
+    private boolean seek(@Nullable ByteString bytes, @Nullable Buffer capture)
+            throws IOException {
+        final Buffer buffer = source.buffer();
+        final long keep = bytes != null ? bytes.size() - 1 : 0;
+        while (true) {
+            final long index = bytes != null ? buffer.indexOf(bytes) : buffer.indexOf((byte) '<');
+            if (index != -1L) {
+                pass(buffer, index, capture);
+                return true;
+            }
+            // retain enough to spot a match spanning the next read
+            pass(buffer, Math.max(0L, buffer.size() - keep), capture);
+            if (!source.request(buffer.size() + 1)) return false;
+        }
+    }
+
+    private static void pass(Buffer buffer, long byteCount, @Nullable Buffer capture) {
+        if (byteCount == 0L) return;
+        if (capture != null) {
+            capture.write(buffer, byteCount);
+        } else {
+            try {
+                buffer.skip(byteCount);
+            } catch (IOException e) {
+                throw new AssertionError(e); // skipping buffered data cannot fail
+            }
+        }
+    }
+
+    /**
+     * Whether the buffered data starts with the given tag name, e.g. {@code <li} but not
+     * {@code <link}.
+     */
+    private boolean startsWithTag(ByteString tagStart) throws IOException {
+        if (!source.request(tagStart.size() + 1)) return false;
+        final Buffer buffer = source.buffer();
+        if (!buffer.rangeEquals(0, tagStart)) return false;
+        final byte next = buffer.getByte(tagStart.size());
+        return next == '>' || next == '/' || next == ' ' || next == '\n' || next == '\t'
+                || next == '\r';
+    }
+
+    /**
+     * Read the tag at the start of the buffer, up to and including its closing {@code >}.
+     */
+    @Nullable
+    private ByteString readTag() throws IOException {
+        final long end = source.indexOf((byte) '>');
+        return end != -1L ? source.readByteString(end + 1) : null;
+    }
+
+}
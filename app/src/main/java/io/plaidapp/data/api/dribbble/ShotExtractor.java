@@ -0,0 +1,212 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.data.api.dribbble;
+
+import android.support.annotation.NonNull;
+
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+
+import io.plaidapp.data.api.dribbble.model.Images;
+import io.plaidapp.data.api.dribbble.model.Shot;
+
+/**
+ * Extracts a {@link Shot} from a {@code <li id="screenshot-…">} element in a single walk of its
+ * subtree. Each node is checked against a fixed set of precompiled matchers, rather than running
+ * a CSS selector (and a traversal) per field.
+ */
+class ShotExtractor {
+
+    private static final String ID_PREFIX = "screenshot-";
+    private static final Matcher DESCRIPTION_BLOCK = new Matcher("a", "dribbble-over");
+    private static final Matcher LINK = new Matcher("a", "dribbble-link");
+    private static final Matcher GIF_INDICATOR = new Matcher("div", "gif-indicator");
+    private static final Matcher LIKES = new Matcher("li", "fav");
+    private static final Matcher COMMENTS = new Matcher("li", "cmnt");
+    private static final Matcher VIEWS = new Matcher("li", "views");
+    // only matched within the description block
+    private static final Matcher TITLE = new Matcher("strong", null);
+    private static final Matcher DESCRIPTION = new Matcher("span", "comment");
+    private static final Matcher TIMESTAMP = new Matcher("em", "timestamp");
+    private static final Matcher IMAGE = new Matcher("img", null);
+
+    private final String host;
+
+    ShotExtractor(String host) {
+        this.host = host;
+    }
+
+    /**
+     * Thrown when a field can't be found or read in a shot's markup, i.e. when Dribbble changes it.
+     */
+    static class MarkupException extends Exception {
+
+        final String field;
+
+        MarkupException(String shotId, String field, String problem) {
+            super("Shot " + shotId + ": " + problem + " " + field);
+            this.field = field;
+        }
+    }
+
+    @NonNull
+    Shot extract(@NonNull Element element) throws MarkupException {
+        final String elementId = element.id();
+        final Fields fields = new Fields();
+        visit(element, fields, false);
+
+        final long id = parseLong(elementId, "id",
+                elementId.startsWith(ID_PREFIX)
+                        ? elementId.substring(ID_PREFIX.length()) : elementId);
+        final Element link = require(elementId, "html_url", fields.link);
+        final Element title = require(elementId, "title", fields.title);
+        final Element image = require(elementId, "image", fields.image);
+
+        // API responses wrap description in a <p> tag. Do the same for consistent display.
+        String description = fields.description != null ? fields.description.text().trim() : "";
+        if (!description.isEmpty()) {
+            description = "<p>" + description + "</p>";
+        }
+        String imgUrl = image.attr("src");
+        if (imgUrl.contains("_teaser.")) {
+            imgUrl = imgUrl.replace("_teaser.", ".");
+        }
+        long createdAt = Shot.NO_DATE;
+        if (fields.timestamp != null) {
+            final long date = ShotFieldDecoder.parseDate(fields.timestamp.text());
+            if (date != ShotFieldDecoder.INVALID_DATE) {
+                createdAt = date;
+            }
+        }
+
+        return new Shot.Builder()
+                .setId(id)
+                .setHtmlUrl(host + link.attr("href"))
+                .setTitle(title.text())
+                .setDescription(description)
+                .setImages(new Images(null, imgUrl, null))
+                .setAnimated(fields.animated)
+                .setCreatedAt(createdAt)
+                .setLikesCount(parseCount(elementId, "likes_count", fields.likes))
+                .setCommentsCount(parseCount(elementId, "comments_count", fields.comments))
+                .setViewsCount(parseCount(elementId, "views_count", fields.views))
+                .build();
+    }
+
+    /**
+     * Walk the subtree once in document order, recording the first match of each field.
+     */
+    private static void visit(Element parent, Fields fields, boolean inDescriptionBlock) {
+        // iterate child nodes directly to avoid allocating a list of child elements per node
+        for (int i = 0; i < parent.childNodeSize(); i++) {
+            final Node node = parent.childNode(i);
+            if (!(node instanceof Element)) continue;
+            final Element child = (Element) node;
+            boolean childInDescriptionBlock = inDescriptionBlock;
+            if (inDescriptionBlock) {
+                if (fields.title == null && TITLE.matches(child)) {
+                    fields.title = child;
+                } else if (fields.description == null && DESCRIPTION.matches(child)) {
+                    fields.description = child;
+                } else if (fields.timestamp == null && TIMESTAMP.matches(child)) {
+                    fields.timestamp = child;
+                }
+            } else if (!fields.seenDescriptionBlock && DESCRIPTION_BLOCK.matches(child)) {
+                fields.seenDescriptionBlock = true;
+                childInDescriptionBlock = true;
+            }
+            if (fields.image == null && IMAGE.matches(child)) {
+                fields.image = child;
+            } else if (fields.link == null && LINK.matches(child)) {
+                fields.link = child;
+            } else if (!fields.animated && GIF_INDICATOR.matches(child)) {
+                fields.animated = true;
+            } else if (fields.likes == null && LIKES.matches(child)) {
+                fields.likes = child;
+            } else if (fields.comments == null && COMMENTS.matches(child)) {
+                fields.comments = child;
+            } else if (fields.views == null && VIEWS.matches(child)) {
+                fields.views = child;
+            }
+            visit(child, fields, childInDescriptionBlock);
+        }
+    }
+
+    private static Element require(String shotId, String field, Element element)
+            throws MarkupException {
+        if (element == null) throw new MarkupException(shotId, field, "missing");
+        return element;
+    }
+
+    /**
+     * Counts are the text of the first child of their list item, e.g. {@code <li><a>1,234</a>}.
+     */
+    private static long parseCount(String shotId, String field, Element countBlock)
+            throws MarkupException {
+        require(shotId, field, countBlock);
+        if (countBlock.children().isEmpty()) {
+            throw new MarkupException(shotId, field, "missing");
+        }
+        return parseLong(shotId, field, countBlock.child(0).text());
+    }
+
+    private static long parseLong(String shotId, String field, String value)
+            throws MarkupException {
+        try {
+            return ShotFieldDecoder.parseCount(value);
+        } catch (NumberFormatException e) {
+            throw new MarkupException(shotId, field, "unreadable");
+        }
+    }
+
+    /**
+     * Matches elements by tag name and (optionally) a class name.
+     */
+    private static class Matcher {
+
+        final String tagName;
+        final String className;
+
+        Matcher(String tagName, String className) {
+            this.tagName = tagName;
+            this.className = className;
+        }
+
+        boolean matches(Element element) {
+            return tagName.equals(element.tagName())
+                    && (className == null || element.hasClass(className));
+        }
+    }
+
+    /**
+     * The elements holding each field, found whilst walking a shot.
+     */
+    private static class Fields {
+
+        boolean seenDescriptionBlock;
+        Element title;
+        Element description;
+        Element timestamp;
+        Element image;
+        Element link;
+        boolean animated;
+        Element likes;
+        Element comments;
+        Element views;
+    }
+
+}
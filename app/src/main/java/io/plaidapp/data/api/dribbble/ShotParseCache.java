@@ -0,0 +1,97 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.data.api.dribbble;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.plaidapp.data.api.dribbble.model.Shot;
+import io.plaidapp.util.BoundedLruCache;
+
+/**
+ * A bounded cache of parsed shots, keyed by a digest of the markup they were parsed from, so that
+ * markup we have seen before (e.g. refreshing the first page of a search) skips building a DOM
+ * and extracting fields.
+ * <p>
+ * Shots are mutated once delivered (page, data source, weight…) so the cache holds its own copy
+ * and hands out fresh copies.
+ */
+public class ShotParseCache {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final BoundedLruCache<Long, Shot> shots;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    ShotParseCache(int maxEntries) {
+        shots = new BoundedLruCache<>(maxEntries);
+    }
+
+    /**
+     * A cheap 64-bit (FNV-1a) digest of some markup, computed without allocating.
+     */
+    static long digest(@NonNull CharSequence markup) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < markup.length(); i++) {
+            final char c = markup.charAt(i);
+            hash = (hash ^ (c & 0xff)) * FNV_PRIME;
+            hash = (hash ^ (c >>> 8)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    @Nullable
+    Shot get(long digest) {
+        final Shot shot = shots.get(digest);
+        if (shot == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return ShotCopies.copy(shot);
+    }
+
+    void put(long digest, @NonNull Shot shot) {
+        shots.put(digest, ShotCopies.copy(shot));
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public int size() {
+        return shots.size();
+    }
+
+    public int maxSize() {
+        return shots.maxSize();
+    }
+
+    @Override
+    public String toString() {
+        return "hits=" + hits.get() + ", misses=" + misses.get() + ", size=" + shots.size()
+                + "/" + shots.maxSize();
+    }
+
+}
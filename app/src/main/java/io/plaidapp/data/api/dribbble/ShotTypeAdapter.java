@@ -0,0 +1,246 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.data.api.dribbble;
+
+import android.support.annotation.NonNull;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import io.plaidapp.data.api.dribbble.model.Images;
+import io.plaidapp.data.api.dribbble.model.Shot;
+
+/**
+ * Streams {@link Shot}s to & from the Dribbble API's JSON representation without reflection: each
+ * field is matched by name as it is read & assigned directly, and unknown fields are skipped.
+ */
+public class ShotTypeAdapter extends TypeAdapter<Shot> {
+
+    private static final String ISO_8601 = "yyyy-MM-dd'T'HH:mm:ss'Z'";
+
+    private final TypeAdapter<Images> imagesAdapter;
+
+    public ShotTypeAdapter(@NonNull TypeAdapter<Images> imagesAdapter) {
+        this.imagesAdapter = imagesAdapter;
+    }
+
+    /**
+     * Register the shot & image adapters with a Gson builder.
+     */
+    public static GsonBuilder register(@NonNull GsonBuilder builder) {
+        final ImagesTypeAdapter imagesAdapter = new ImagesTypeAdapter();
+        return builder
+                .registerTypeAdapter(Images.class, imagesAdapter)
+                .registerTypeAdapter(Shot.class, new ShotTypeAdapter(imagesAdapter));
+    }
+
+    @Override
+    public void write(JsonWriter out, Shot shot) throws IOException {
+        if (shot == null) {
+            out.nullValue();
+            return;
+        }
+        // only used to produce fixtures etc. so a formatter per shot is fine
+        final SimpleDateFormat dateFormat = new SimpleDateFormat(ISO_8601, Locale.US);
+        dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+        out.beginObject();
+        out.name("id").value(shot.id);
+        out.name("title").value(shot.title);
+        out.name("description").value(shot.description);
+        out.name("width").value(shot.width);
+        out.name("height").value(shot.height);
+        out.name("images");
+        imagesAdapter.write(out, shot.images);
+        out.name("views_count").value(shot.views_count);
+        out.name("likes_count").value(shot.likes_count);
+        out.name("comments_count").value(shot.comments_count);
+        out.name("attachments_count").value(shot.attachments_count);
+        out.name("rebounds_count").value(shot.rebounds_count);
+        out.name("buckets_count").value(shot.buckets_count);
+        out.name("created_at").value(formatDate(shot.getCreatedAtMillis(), dateFormat));
+        out.name("updated_at").value(formatDate(shot.getUpdatedAtMillis(), dateFormat));
+        out.name("html_url").value(shot.html_url);
+        out.name("attachments_url").value(shot.getAttachmentsUrl());
+        out.name("buckets_url").value(shot.getBucketsUrl());
+        out.name("comments_url").value(shot.getCommentsUrl());
+        out.name("likes_url").value(shot.getLikesUrl());
+        out.name("projects_url").value(shot.getProjectsUrl());
+        out.name("rebounds_url").value(shot.getReboundsUrl());
+        out.name("animated").value(shot.animated);
+        out.name("tags");
+        if (shot.tags != null) {
+            out.beginArray();
+            for (String tag : shot.tags) {
+                out.value(tag);
+            }
+            out.endArray();
+        } else {
+            out.nullValue();
+        }
+        out.endObject();
+    }
+
+    @Override
+    public Shot read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        long id = 0L;
+        String title = null;
+        String description = null;
+        long width = 0L;
+        long height = 0L;
+        Images images = null;
+        long viewsCount = 0L;
+        long likesCount = 0L;
+        long commentsCount = 0L;
+        long attachmentsCount = 0L;
+        long reboundsCount = 0L;
+        long bucketsCount = 0L;
+        long createdAt = Shot.NO_DATE;
+        long updatedAt = Shot.NO_DATE;
+        String htmlUrl = null;
+        boolean animated = false;
+        List<String> tags = null;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "id":
+                    id = in.nextLong();
+                    break;
+                case "title":
+                    title = nextString(in);
+                    break;
+                case "description":
+                    description = nextString(in);
+                    break;
+                case "width":
+                    width = nextLong(in);
+                    break;
+                case "height":
+                    height = nextLong(in);
+                    break;
+                case "images":
+                    images = imagesAdapter.read(in);
+                    break;
+                case "views_count":
+                    viewsCount = nextLong(in);
+                    break;
+                case "likes_count":
+                    likesCount = nextLong(in);
+                    break;
+                case "comments_count":
+                    commentsCount = nextLong(in);
+                    break;
+                case "attachments_count":
+                    attachmentsCount = nextLong(in);
+                    break;
+                case "rebounds_count":
+                    reboundsCount = nextLong(in);
+                    break;
+                case "buckets_count":
+                    bucketsCount = nextLong(in);
+                    break;
+                case "created_at":
+                    createdAt = nextDate(in);
+                    break;
+                case "updated_at":
+                    updatedAt = nextDate(in);
+                    break;
+                case "html_url":
+                    htmlUrl = nextString(in);
+                    break;
+                case "animated":
+                    animated = nextBoolean(in);
+                    break;
+                case "tags":
+                    tags = nextStrings(in);
+                    break;
+                default:
+                    // including the API's *_url links, which are derived from the id
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return new Shot(id, title, description, width, height, images, viewsCount, likesCount,
+                commentsCount, attachmentsCount, reboundsCount, bucketsCount, createdAt,
+                updatedAt, htmlUrl, animated, tags);
+    }
+
+    static String nextString(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextString();
+    }
+
+    private static long nextLong(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return 0L;
+        }
+        return in.nextLong();
+    }
+
+    private static boolean nextBoolean(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return false;
+        }
+        return in.nextBoolean();
+    }
+
+    private static long nextDate(JsonReader in) throws IOException {
+        final String value = nextString(in);
+        if (value == null) return Shot.NO_DATE;
+        final long time = ShotFieldDecoder.parseIsoInstant(value);
+        return time != ShotFieldDecoder.INVALID_DATE ? time : Shot.NO_DATE;
+    }
+
+    private static String formatDate(long time, SimpleDateFormat dateFormat) {
+        return time != Shot.NO_DATE ? dateFormat.format(new Date(time)) : null;
+    }
+
+    private static List<String> nextStrings(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        final List<String> values = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            values.add(nextString(in));
+        }
+        in.endArray();
+        return values;
+    }
+
+}
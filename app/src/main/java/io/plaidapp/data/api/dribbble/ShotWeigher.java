@@ -16,8 +16,6 @@
 
 package io.plaidapp.data.api.dribbble;
 
-import java.util.List;
-
 import io.plaidapp.data.PlaidItemSorting;
 import io.plaidapp.data.api.dribbble.model.Shot;
 
@@ -25,18 +23,11 @@ import io.plaidapp.data.api.dribbble.model.Shot;
  * Utility class for applying weights to a group of {@link Shot}s for sorting. Weighs shots relative
  * to the most liked shot in the group.
  */
-public class ShotWeigher implements PlaidItemSorting.PlaidItemGroupWeigher<Shot> {
+public class ShotWeigher extends PlaidItemSorting.RelativeCountWeigher<Shot> {
 
     @Override
-    public void weigh(List<Shot> shots) {
-        float maxLikes = 0f;
-        for (Shot shot : shots) {
-            maxLikes = Math.max(maxLikes, shot.likes_count);
-        }
-        for (Shot shot : shots) {
-            float weight = 1f - ((float) shot.likes_count / maxLikes);
-            shot.weight = shot.page + weight;
-        }
+    protected long getCount(Shot shot) {
+        return shot.likes_count;
     }
 
 }
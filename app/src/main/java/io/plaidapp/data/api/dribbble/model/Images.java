@@ -22,26 +22,39 @@ import android.text.TextUtils;
 
 /**
  * Models links to the various quality of images of a shot.
+ * <p>
+ * Dribbble names a shot's teaser after its other images ({@code …/shot_1x.png} →
+ * {@code …/shot_teaser.png}) so it is only held if it doesn't follow that scheme, otherwise it is
+ * derived on demand.
  */
 public class Images implements Parcelable {
 
     private static final int[] NORMAL_IMAGE_SIZE = new int[] { 400, 300 };
     private static final int[] TWO_X_IMAGE_SIZE = new int[] { 800, 600 };
 
+    private static final String TEASER_SUFFIX = "_teaser";
+    private static final String NORMAL_SUFFIX = "_1x";
+
     public final String hidpi;
     public final String normal;
-    public final String teaser;
+    // null if derived from the normal image
+    private final String teaser;
+    private final boolean hasTeaser;
 
     public Images(String hidpi, String normal, String teaser) {
         this.hidpi = hidpi;
         this.normal = normal;
-        this.teaser = teaser;
+        hasTeaser = teaser != null;
+        this.teaser = hasTeaser && teaser.equals(deriveTeaser(normal)) ? null : teaser;
     }
 
     protected Images(Parcel in) {
-        hidpi = in.readString();
-        normal = in.readString();
-        teaser = in.readString();
+        this(in.readString(), in.readString(), in.readString());
+    }
+
+    public String getTeaser() {
+        if (!hasTeaser) return null;
+        return teaser != null ? teaser : deriveTeaser(normal);
     }
 
     public String best() {
@@ -61,7 +74,16 @@ public class Images implements Parcelable {
     public void writeToParcel(Parcel dest, int flags) {
         dest.writeString(hidpi);
         dest.writeString(normal);
-        dest.writeString(teaser);
+        dest.writeString(getTeaser());
+    }
+
+    private static String deriveTeaser(String normal) {
+        if (normal == null) return null;
+        final int extension = normal.lastIndexOf('.');
+        if (extension <= normal.lastIndexOf('/')) return null;
+        final int stemEnd = normal.startsWith(NORMAL_SUFFIX, extension - NORMAL_SUFFIX.length())
+                ? extension - NORMAL_SUFFIX.length() : extension;
+        return normal.substring(0, stemEnd) + TEASER_SUFFIX + normal.substring(extension);
     }
 
     @SuppressWarnings("unused")
@@ -20,10 +20,12 @@ import android.content.res.ColorStateList;
 import android.os.Parcel;
 import android.os.Parcelable;
 import android.support.annotation.ColorInt;
+import android.support.annotation.Nullable;
 import android.text.Spanned;
 import android.text.TextUtils;
 
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 
@@ -31,10 +33,21 @@ import io.plaidapp.data.PlaidItem;
 import io.plaidapp.util.DribbbleUtils;
 
 /**
- * Models a dibbble shot
+ * Models a dibbble shot.
+ * <p>
+ * Feeds can hold thousands of these so only what the app uses is held: the API's
+ * {@code *_url} links are derived from the id on demand, dates are held as epoch millis and tags
+ * are interned.
  */
 public class Shot extends PlaidItem implements Parcelable {
 
+    /**
+     * The value of a date which is not known.
+     */
+    public static final long NO_DATE = -1L;
+
+    private static final String API_SHOTS_URL = "https://api.dribbble.com/v1/shots/";
+
     public final String description;
     public final long width;
     public final long height;
@@ -45,17 +58,11 @@ public class Shot extends PlaidItem implements Parcelable {
     public final long attachments_count;
     public final long rebounds_count;
     public final long buckets_count;
-    public final Date created_at;
-    public final Date updated_at;
     public final String html_url;
-    public final String attachments_url;
-    public final String buckets_url;
-    public final String comments_url;
-    public final String likes_url;
-    public final String projects_url;
-    public final String rebounds_url;
     public final boolean animated;
     public final List<String> tags;
+    private final long createdAt;
+    private final long updatedAt;
     // todo move this into a decorator
     public boolean hasFadedIn = false;
     public Spanned parsedDescription;
@@ -72,15 +79,9 @@ public class Shot extends PlaidItem implements Parcelable {
                 long attachments_count,
                 long rebounds_count,
                 long buckets_count,
-                Date created_at,
-                Date updated_at,
+                long createdAt,
+                long updatedAt,
                 String html_url,
-                String attachments_url,
-                String buckets_url,
-                String comments_url,
-                String likes_url,
-                String projects_url,
-                String rebounds_url,
                 boolean animated,
                 List<String> tags) {
         super(id, title, html_url);
@@ -94,17 +95,11 @@ public class Shot extends PlaidItem implements Parcelable {
         this.attachments_count = attachments_count;
         this.rebounds_count = rebounds_count;
         this.buckets_count = buckets_count;
-        this.created_at = created_at;
-        this.updated_at = updated_at;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
         this.html_url = html_url;
-        this.attachments_url = attachments_url;
-        this.buckets_url = buckets_url;
-        this.comments_url = comments_url;
-        this.likes_url = likes_url;
-        this.projects_url = projects_url;
-        this.rebounds_url = rebounds_url;
         this.animated = animated;
-        this.tags = tags;
+        this.tags = internTags(tags);
     }
 
     protected Shot(Parcel in) {
@@ -112,31 +107,88 @@ public class Shot extends PlaidItem implements Parcelable {
         description = in.readString();
         width = in.readLong();
         height = in.readLong();
-        images = (Images) in.readValue(Images.class.getClassLoader());
+        images = in.readByte() != 0x00 ? new Images(in) : null;
         views_count = in.readLong();
         likes_count = in.readLong();
         comments_count = in.readLong();
         attachments_count = in.readLong();
         rebounds_count = in.readLong();
         buckets_count = in.readLong();
-        long tmpCreated_at = in.readLong();
-        created_at = tmpCreated_at != -1 ? new Date(tmpCreated_at) : null;
-        long tmpUpdated_at = in.readLong();
-        updated_at = tmpUpdated_at != -1 ? new Date(tmpUpdated_at) : null;
-        html_url = in.readString();
-        url = html_url;
-        attachments_url = in.readString();
-        buckets_url = in.readString();
-        comments_url = in.readString();
-        likes_url = in.readString();
-        projects_url = in.readString();
-        rebounds_url = in.readString();
+        createdAt = in.readLong();
+        updatedAt = in.readLong();
+        html_url = url;
         animated = in.readByte() != 0x00;
-        tags = new ArrayList<String>();
-        in.readStringList(tags);
+        tags = internTags(in.createStringArrayList());
         hasFadedIn = in.readByte() != 0x00;
     }
 
+    /**
+     * @return when this shot was created, or null if not known. Allocates; prefer
+     * {@link #getCreatedAtMillis()} where possible.
+     */
+    @Nullable
+    public Date getCreatedAt() {
+        return createdAt != NO_DATE ? new Date(createdAt) : null;
+    }
+
+    /**
+     * @return when this shot was created in epoch millis, or {@link #NO_DATE}.
+     */
+    public long getCreatedAtMillis() {
+        return createdAt;
+    }
+
+    @Nullable
+    public Date getUpdatedAt() {
+        return updatedAt != NO_DATE ? new Date(updatedAt) : null;
+    }
+
+    public long getUpdatedAtMillis() {
+        return updatedAt;
+    }
+
+    public String getAttachmentsUrl() {
+        return apiUrl("attachments");
+    }
+
+    public String getBucketsUrl() {
+        return apiUrl("buckets");
+    }
+
+    public String getCommentsUrl() {
+        return apiUrl("comments");
+    }
+
+    public String getLikesUrl() {
+        return apiUrl("likes");
+    }
+
+    public String getProjectsUrl() {
+        return apiUrl("projects");
+    }
+
+    public String getReboundsUrl() {
+        return apiUrl("rebounds");
+    }
+
+    private String apiUrl(String collection) {
+        return API_SHOTS_URL + id + '/' + collection;
+    }
+
+    /**
+     * Tags are drawn from a small vocabulary shared by many shots, so share their strings.
+     */
+    private static List<String> internTags(List<String> tags) {
+        if (tags == null) return null;
+        if (tags.isEmpty()) return Collections.emptyList();
+        final String[] interned = new String[tags.size()];
+        for (int i = 0; i < interned.length; i++) {
+            final String tag = tags.get(i);
+            interned[i] = tag != null ? tag.intern() : null;
+        }
+        return Collections.unmodifiableList(Arrays.asList(interned));
+    }
+
     public Spanned getParsedDescription(ColorStateList linkTextColor,
                                         @ColorInt int linkHighlightColor) {
         if (parsedDescription == null && !TextUtils.isEmpty(description)) {
@@ -159,15 +211,9 @@ public class Shot extends PlaidItem implements Parcelable {
         private long attachments_count;
         private long rebounds_count;
         private long buckets_count;
-        private Date created_at;
-        private Date updated_at;
+        private long createdAt = NO_DATE;
+        private long updatedAt = NO_DATE;
         private String html_url;
-        private String attachments_url;
-        private String buckets_url;
-        private String comments_url;
-        private String likes_url;
-        private String projects_url;
-        private String rebounds_url;
         private boolean animated;
         private List<String> tags;
 
@@ -218,7 +264,12 @@ public class Shot extends PlaidItem implements Parcelable {
 
 
         public Builder setCreatedAt(Date created_at) {
-            this.created_at = created_at;
+            this.createdAt = created_at != null ? created_at.getTime() : NO_DATE;
+            return this;
+        }
+
+        public Builder setCreatedAt(long createdAt) {
+            this.createdAt = createdAt;
             return this;
         }
 
@@ -235,9 +286,7 @@ public class Shot extends PlaidItem implements Parcelable {
         public Shot build() {
             return new Shot(id, title, description, width, height, images, views_count,
                     likes_count, comments_count, attachments_count, rebounds_count,
-                    buckets_count, created_at, updated_at, html_url, attachments_url,
-                    buckets_url, comments_url, likes_url, projects_url, rebounds_url, animated,
-                    tags);
+                    buckets_count, createdAt, updatedAt, html_url, animated, tags);
         }
     }
 
@@ -269,22 +318,17 @@ public class Shot extends PlaidItem implements Parcelable {
         dest.writeString(description);
         dest.writeLong(width);
         dest.writeLong(height);
-        dest.writeValue(images);
+        // write images inline rather than looking up their class by name
+        dest.writeByte((byte) (images != null ? 0x01 : 0x00));
+        if (images != null) images.writeToParcel(dest, flags);
         dest.writeLong(views_count);
         dest.writeLong(likes_count);
         dest.writeLong(comments_count);
         dest.writeLong(attachments_count);
         dest.writeLong(rebounds_count);
         dest.writeLong(buckets_count);
-        dest.writeLong(created_at != null ? created_at.getTime() : -1L);
-        dest.writeLong(updated_at != null ? updated_at.getTime() : -1L);
-        dest.writeString(html_url);
-        dest.writeString(attachments_url);
-        dest.writeString(buckets_url);
-        dest.writeString(comments_url);
-        dest.writeString(likes_url);
-        dest.writeString(projects_url);
-        dest.writeString(rebounds_url);
+        dest.writeLong(createdAt);
+        dest.writeLong(updatedAt);
         dest.writeByte((byte) (animated ? 0x01 : 0x00));
         dest.writeStringList(tags);
         dest.writeByte((byte) (hasFadedIn ? 0x01 : 0x00));
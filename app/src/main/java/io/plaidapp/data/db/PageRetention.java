@@ -0,0 +1,66 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.data.db;
+
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Tracks which pages of a data source are stored, in the order they were written, and decides
+ * which to evict so that only the most recently written pages are kept.
+ * <p>
+ * Not thread safe; {@link ShotStore} only uses it from its database thread.
+ */
+class PageRetention {
+
+    private final int maxPages;
+    // oldest first
+    private final LinkedHashSet<Integer> pages;
+
+    /**
+     * @param storedPages the pages already stored for the source, least recently written first
+     */
+    PageRetention(int maxPages, @NonNull Collection<Integer> storedPages) {
+        this.maxPages = Math.max(1, maxPages);
+        pages = new LinkedHashSet<>(storedPages);
+    }
+
+    /**
+     * Record that a page has been (re)written.
+     *
+     * @return the pages which should now be removed, oldest first
+     */
+    @NonNull
+    List<Integer> written(int page) {
+        pages.remove(page);
+        pages.add(page);
+        if (pages.size() <= maxPages) return Collections.emptyList();
+        final List<Integer> evicted = new ArrayList<>(pages.size() - maxPages);
+        for (Iterator<Integer> it = pages.iterator(); pages.size() > maxPages; ) {
+            evicted.add(it.next());
+            it.remove();
+        }
+        return evicted;
+    }
+
+}
@@ -0,0 +1,352 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.data.db;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import io.plaidapp.data.api.dribbble.model.Images;
+import io.plaidapp.data.api.dribbble.model.Shot;
+
+/**
+ * An on-device store of loaded {@link Shot}s, recording which page of which data source each shot
+ * was loaded on. Allows paging through previously loaded sources when offline.
+ * <p>
+ * All database access happens on a single background thread; writes are batched into one
+ * transaction per page and reads are delivered back on the main thread.
+ * <p>
+ * Only the {@link #MAX_PAGES_PER_SOURCE} most recently written pages of each data source are kept
+ * so that the database doesn't grow without bound; older pages (and any shots which only they
+ * referenced) are removed as new ones are written.
+ */
+public class ShotStore extends SQLiteOpenHelper {
+
+    private static final String TAG = "ShotStore";
+    private static final String DATABASE_NAME = "shots.db";
+    private static final int DATABASE_VERSION = 1;
+    public static final int MAX_PAGES_PER_SOURCE = 10;
+
+    private static final String TABLE_SHOTS = "shots";
+    private static final String TABLE_IMAGES = "images";
+    private static final String TABLE_SOURCE_SHOTS = "source_shots";
+
+    private static final String SQL_CREATE_SHOTS = "CREATE TABLE " + TABLE_SHOTS + " ("
+            + "id INTEGER PRIMARY KEY, "
+            + "title TEXT, "
+            + "description TEXT, "
+            + "html_url TEXT, "
+            + "width INTEGER NOT NULL, "
+            + "height INTEGER NOT NULL, "
+            + "views_count INTEGER NOT NULL, "
+            + "likes_count INTEGER NOT NULL, "
+            + "comments_count INTEGER NOT NULL, "
+            + "created_at INTEGER, "
+            + "animated INTEGER NOT NULL)";
+    private static final String SQL_CREATE_IMAGES = "CREATE TABLE " + TABLE_IMAGES + " ("
+            + "shot_id INTEGER PRIMARY KEY, "
+            + "hidpi TEXT, "
+            + "normal TEXT, "
+            + "teaser TEXT)";
+    private static final String SQL_CREATE_SOURCE_SHOTS = "CREATE TABLE " + TABLE_SOURCE_SHOTS
+            + " ("
+            + "data_source TEXT NOT NULL, "
+            + "page INTEGER NOT NULL, "
+            + "position INTEGER NOT NULL, "
+            + "shot_id INTEGER NOT NULL)";
+    // paging queries are (data_source, page) lookups so keep them O(page size)
+    private static final String SQL_CREATE_SOURCE_PAGE_INDEX = "CREATE UNIQUE INDEX "
+            + "source_shots_source_page ON " + TABLE_SOURCE_SHOTS
+            + " (data_source, page, position)";
+
+    private static final String SQL_INSERT_SHOT = "INSERT OR REPLACE INTO " + TABLE_SHOTS
+            + " (id, title, description, html_url, width, height, views_count, likes_count, "
+            + "comments_count, created_at, animated) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String SQL_INSERT_IMAGES = "INSERT OR REPLACE INTO " + TABLE_IMAGES
+            + " (shot_id, hidpi, normal, teaser) VALUES (?, ?, ?, ?)";
+    private static final String SQL_INSERT_SOURCE_SHOT = "INSERT INTO " + TABLE_SOURCE_SHOTS
+            + " (data_source, page, position, shot_id) VALUES (?, ?, ?, ?)";
+    private static final String SQL_QUERY_PAGE = "SELECT s.id, s.title, s.description, "
+            + "s.html_url, s.width, s.height, s.views_count, s.likes_count, s.comments_count, "
+            + "s.created_at, s.animated, i.hidpi, i.normal, i.teaser "
+            + "FROM " + TABLE_SOURCE_SHOTS + " m "
+            + "JOIN " + TABLE_SHOTS + " s ON s.id = m.shot_id "
+            + "LEFT JOIN " + TABLE_IMAGES + " i ON i.shot_id = s.id "
+            + "WHERE m.data_source = ? AND m.page = ? "
+            + "ORDER BY m.position";
+    // shots are upserted with INSERT OR REPLACE so we don't use cascading foreign keys (which the
+    // implicit delete would trigger); instead tidy up unreferenced rows explicitly
+    // rows are given increasing rowids as they are inserted, so this orders pages oldest first
+    private static final String SQL_QUERY_PAGES_BY_AGE = "SELECT page FROM " + TABLE_SOURCE_SHOTS
+            + " WHERE data_source = ? GROUP BY page ORDER BY MAX(rowid)";
+    private static final String SQL_DELETE_ORPHANED_SHOTS = "DELETE FROM " + TABLE_SHOTS
+            + " WHERE id NOT IN (SELECT shot_id FROM " + TABLE_SOURCE_SHOTS + ")";
+    private static final String SQL_DELETE_ORPHANED_IMAGES = "DELETE FROM " + TABLE_IMAGES
+            + " WHERE shot_id NOT IN (SELECT id FROM " + TABLE_SHOTS + ")";
+
+    private static ShotStore instance;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // data source -> stored pages; only accessed on the executor
+    private final Map<String, PageRetention> retention = new HashMap<>();
+
+    public interface PageCallback {
+        void onPageLoaded(@NonNull List<Shot> shots);
+    }
+
+    public static synchronized ShotStore getInstance(@NonNull Context context) {
+        if (instance == null) {
+            instance = new ShotStore(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private ShotStore(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL(SQL_CREATE_SHOTS);
+        db.execSQL(SQL_CREATE_IMAGES);
+        db.execSQL(SQL_CREATE_SOURCE_SHOTS);
+        db.execSQL(SQL_CREATE_SOURCE_PAGE_INDEX);
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // this is a cache of network data so simply start again
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_SOURCE_SHOTS);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_IMAGES);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_SHOTS);
+        onCreate(db);
+    }
+
+    /**
+     * Store a page of shots loaded for a data source, replacing any previous contents of the page.
+     */
+    public void putPage(@NonNull final String dataSource,
+                        final int page,
+                        @NonNull List<Shot> shots) {
+        final List<Shot> toWrite = new ArrayList<>(shots);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    writePage(dataSource, page, toWrite);
+                } catch (RuntimeException e) {
+                    Log.w(TAG, "Failed to store page " + page + " of " + dataSource, e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Load a stored page of a data source; the callback is invoked on the main thread with an
+     * empty list if we hold nothing for the page.
+     */
+    public void loadPage(@NonNull final String dataSource,
+                         final int page,
+                         @NonNull final PageCallback callback) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                List<Shot> shots;
+                try {
+                    shots = readPage(dataSource, page);
+                } catch (RuntimeException e) {
+                    Log.w(TAG, "Failed to load page " + page + " of " + dataSource, e);
+                    shots = Collections.emptyList();
+                }
+                final List<Shot> loaded = shots;
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        callback.onPageLoaded(loaded);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Remove all stored pages of a data source along with any shots no longer referenced.
+     */
+    public void removeDataSource(@NonNull final String dataSource) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                retention.remove(dataSource);
+                final SQLiteDatabase db = getWritableDatabase();
+                db.beginTransaction();
+                try {
+                    db.delete(TABLE_SOURCE_SHOTS, "data_source = ?", new String[] { dataSource });
+                    db.execSQL(SQL_DELETE_ORPHANED_SHOTS);
+                    db.execSQL(SQL_DELETE_ORPHANED_IMAGES);
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+            }
+        });
+    }
+
+    private void writePage(String dataSource, int page, List<Shot> shots) {
+        final SQLiteDatabase db = getWritableDatabase();
+        final SQLiteStatement insertShot = db.compileStatement(SQL_INSERT_SHOT);
+        final SQLiteStatement insertImages = db.compileStatement(SQL_INSERT_IMAGES);
+        final SQLiteStatement insertSourceShot = db.compileStatement(SQL_INSERT_SOURCE_SHOT);
+        boolean written = false;
+        db.beginTransaction();
+        try {
+            db.delete(TABLE_SOURCE_SHOTS, "data_source = ? AND page = ?",
+                    new String[] { dataSource, String.valueOf(page) });
+            for (int position = 0; position < shots.size(); position++) {
+                final Shot shot = shots.get(position);
+                insertShot.clearBindings();
+                insertShot.bindLong(1, shot.id);
+                bindString(insertShot, 2, shot.title);
+                bindString(insertShot, 3, shot.description);
+                bindString(insertShot, 4, shot.html_url);
+                insertShot.bindLong(5, shot.width);
+                insertShot.bindLong(6, shot.height);
+                insertShot.bindLong(7, shot.views_count);
+                insertShot.bindLong(8, shot.likes_count);
+                insertShot.bindLong(9, shot.comments_count);
+                if (shot.getCreatedAtMillis() != Shot.NO_DATE) {
+                    insertShot.bindLong(10, shot.getCreatedAtMillis());
+                }
+                insertShot.bindLong(11, shot.animated ? 1 : 0);
+                insertShot.executeInsert();
+
+                if (shot.images != null) {
+                    insertImages.clearBindings();
+                    insertImages.bindLong(1, shot.id);
+                    bindString(insertImages, 2, shot.images.hidpi);
+                    bindString(insertImages, 3, shot.images.normal);
+                    bindString(insertImages, 4, shot.images.getTeaser());
+                    insertImages.executeInsert();
+                }
+
+                insertSourceShot.clearBindings();
+                insertSourceShot.bindString(1, dataSource);
+                insertSourceShot.bindLong(2, page);
+                insertSourceShot.bindLong(3, position);
+                insertSourceShot.bindLong(4, shot.id);
+                insertSourceShot.executeInsert();
+            }
+            prunePages(db, dataSource, page);
+            db.setTransactionSuccessful();
+            written = true;
+        } finally {
+            db.endTransaction();
+            if (!written) {
+                // we no longer know what is stored for the source so re-read it next time
+                retention.remove(dataSource);
+            }
+            insertShot.close();
+            insertImages.close();
+            insertSourceShot.close();
+        }
+    }
+
+    /**
+     * Remove the least recently written pages of a data source beyond the most recent
+     * {@link #MAX_PAGES_PER_SOURCE}, given that {@code page} has just been written.
+     */
+    private void prunePages(SQLiteDatabase db, String dataSource, int page) {
+        PageRetention pages = retention.get(dataSource);
+        if (pages == null) {
+            // already includes the page just written
+            pages = new PageRetention(MAX_PAGES_PER_SOURCE, readStoredPages(db, dataSource));
+            retention.put(dataSource, pages);
+        }
+        final List<Integer> evicted = pages.written(page);
+        if (evicted.isEmpty()) return;
+        for (int evictedPage : evicted) {
+            db.delete(TABLE_SOURCE_SHOTS, "data_source = ? AND page = ?",
+                    new String[] { dataSource, String.valueOf(evictedPage) });
+        }
+        db.execSQL(SQL_DELETE_ORPHANED_SHOTS);
+        db.execSQL(SQL_DELETE_ORPHANED_IMAGES);
+    }
+
+    private static List<Integer> readStoredPages(SQLiteDatabase db, String dataSource) {
+        final Cursor cursor = db.rawQuery(SQL_QUERY_PAGES_BY_AGE, new String[] { dataSource });
+        try {
+            final List<Integer> pages = new ArrayList<>(cursor.getCount());
+            while (cursor.moveToNext()) {
+                pages.add(cursor.getInt(0));
+            }
+            return pages;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private List<Shot> readPage(String dataSource, int page) {
+        final Cursor cursor = getReadableDatabase().rawQuery(SQL_QUERY_PAGE,
+                new String[] { dataSource, String.valueOf(page) });
+        try {
+            final List<Shot> shots = new ArrayList<>(cursor.getCount());
+            while (cursor.moveToNext()) {
+                shots.add(new Shot.Builder()
+                        .setId(cursor.getLong(0))
+                        .setTitle(cursor.getString(1))
+                        .setDescription(cursor.getString(2))
+                        .setHtmlUrl(cursor.getString(3))
+                        .setWidth(cursor.getLong(4))
+                        .setHeight(cursor.getLong(5))
+                        .setViewsCount(cursor.getLong(6))
+                        .setLikesCount(cursor.getLong(7))
+                        .setCommentsCount(cursor.getLong(8))
+                        .setCreatedAt(cursor.isNull(9) ? Shot.NO_DATE : cursor.getLong(9))
+                        .setAnimated(cursor.getInt(10) != 0)
+                        .setImages(new Images(
+                                cursor.getString(11), cursor.getString(12), cursor.getString(13)))
+                        .build());
+            }
+            return shots;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static void bindString(SQLiteStatement statement, int index, String value) {
+        if (value != null) {
+            statement.bindString(index, value);
+        } else {
+            statement.bindNull(index);
+        }
+    }
+
+}
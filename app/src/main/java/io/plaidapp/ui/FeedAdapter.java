@@ -33,11 +33,13 @@ import android.graphics.drawable.Drawable;
 import android.graphics.drawable.TransitionDrawable;
 import android.net.Uri;
 import android.os.Handler;
+import android.os.Looper;
 import android.support.annotation.ColorInt;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.customtabs.CustomTabsIntent;
 import android.support.v4.content.ContextCompat;
+import android.support.v7.util.DiffUtil;
 import android.support.v7.widget.RecyclerView;
 import android.support.v7.widget.StaggeredGridLayoutManager;
 import android.transition.Transition;
@@ -62,15 +64,20 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import butterknife.BindView;
 import butterknife.ButterKnife;
 import io.plaidapp.R;
 import io.plaidapp.data.DataLoadingSubject;
+import io.plaidapp.data.ItemDeduplicator;
+import io.plaidapp.data.ItemIndex;
 import io.plaidapp.data.PlaidItem;
 import io.plaidapp.data.PlaidItemSorting;
 import io.plaidapp.data.api.dribbble.ShotWeigher;
 import io.plaidapp.data.api.dribbble.model.Shot;
+import io.plaidapp.ui.recyclerview.AppendUpdateBatcher;
 import io.plaidapp.ui.widget.BadgedFourThreeImageView;
 import io.plaidapp.util.ObservableColorMatrix;
 import io.plaidapp.util.TransitionUtils;
@@ -89,6 +96,8 @@ public class FeedAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
 
     private static final int TYPE_DRIBBBLE_SHOT = 1;
     private static final int TYPE_LOADING_MORE = -1;
+    // diffs are computed one at a time, off the main thread
+    private static final ExecutorService differ = Executors.newSingleThreadExecutor();
 
     // we need to hold on to an activity ref for the shared element transitions :/
     private final Activity host;
@@ -99,9 +108,20 @@ public class FeedAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
     private final int columns;
     private final ColorDrawable[] shotLoadingPlaceholders;
     private final @ColorInt int initialGifBadgeColor;
+    private final Handler mainThread = new Handler(Looper.getMainLooper());
 
     private List<PlaidItem> items;
+    // the items to display once the diff in progress (if any) is applied
+    private @Nullable List<PlaidItem> diffTarget;
+    // incremented whenever the diff target changes, to spot diffs made against a stale target
+    private int diffTargetVersion = 0;
+    private int diffGeneration = 0;
+    // the position of each item by id, maintained alongside items
+    private final ItemIndex itemIndex = new ItemIndex();
+    // likewise for diffTarget, whilst a diff is in progress
+    private final ItemIndex diffTargetIndex = new ItemIndex();
     private boolean showLoadingMore = false;
+    private final AppendUpdateBatcher updates;
     //private ShotWeigher shotWeigher;
 
     public FeedAdapter(Activity hostActivity,
@@ -110,6 +130,9 @@ public class FeedAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
         this.host = hostActivity;
         this.dataLoading = dataLoading;
         dataLoading.registerCallback(this);
+        // the data manager may be retained & part way through loading
+        showLoadingMore = dataLoading.isDataLoading();
+        updates = new AppendUpdateBatcher(this, showLoadingMore);
         this.columns = columns;
 
         layoutInflater = LayoutInflater.from(host);
@@ -323,8 +346,15 @@ public class FeedAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
     }
 
     public void clear() {
+        // abandon any diff in progress; removing everything is simply a range removal
+        diffGeneration++;
+        diffTarget = null;
+        diffTargetIndex.clear();
+        updates.flush();
+        final int count = items.size();
         items.clear();
-        notifyDataSetChanged();
+        itemIndex.clear();
+        notifyItemRangeRemoved(0, count);
     }
 
     /**
@@ -344,44 +374,84 @@ public class FeedAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
      * De-dupe as the same item can be returned by multiple feeds
      */
     private void deduplicateAndAdd(List<? extends PlaidItem> newItems) {
-        final int count = getDataItemCount();
-        for (PlaidItem newItem : newItems) {
-            boolean add = true;
-            for (int i = 0; i < count; i++) {
-                PlaidItem existingItem = getItem(i);
-                if (existingItem.equals(newItem)) {
-                    add = false;
-                    break;
-                }
-            }
-            if (add) {
-                add(newItem);
+        if (diffTarget != null) {
+            // the displayed items may still hold duplicates which are about to be removed, so
+            // de-dupe against the items to display instead & add to those; they appear once the
+            // diff is applied
+            for (PlaidItem newItem :
+                    ItemDeduplicator.filterNew(diffTarget, diffTargetIndex, newItems)) {
+                diffTargetIndex.put(newItem.id, diffTarget.size());
+                diffTarget.add(newItem);
+                diffTargetVersion++;
             }
+            return;
+        }
+        for (PlaidItem newItem : ItemDeduplicator.filterNew(items, itemIndex, newItems)) {
+            add(newItem);
         }
     }
 
     private void add(PlaidItem item) {
+        itemIndex.put(item.id, items.size());
         items.add(item);
-        Handler handler = new Handler();
-        final Runnable r = new Runnable() {
-            @Override
-            public void run() {
-                notifyItemInserted(items.size() - 1);
-            }
-        };
-        handler.post(r);
+        // a page arrives all at once so notify its items together
+        updates.itemsAppended(items.size() - 1, 1);
     }
 
-
+    /**
+     * Remove the items of a data source. Rather than rebinding the whole grid, the changes are
+     * found by diffing on a background thread and then notified precisely; until then the items
+     * remain displayed and any items added meanwhile wait to be displayed with the diff.
+     */
     public void removeDataSource(String dataSource) {
-        for (int i = items.size() - 1; i >= 0; i--) {
-            PlaidItem item = items.get(i);
-            if (dataSource.equals(item.dataSource)) {
-                items.remove(i);
+        final List<PlaidItem> current = diffTarget != null ? diffTarget : items;
+        final List<PlaidItem> kept = new ArrayList<>(current.size());
+        for (PlaidItem item : current) {
+            if (!dataSource.equals(item.dataSource)) {
+                kept.add(item);
             }
         }
+        if (kept.size() == current.size()) return;
+        diffTarget = kept;
+        diffTargetIndex.rebuild(kept);
+        diff();
+    }
 
-        notifyDataSetChanged();
+    /**
+     * Diff the displayed items against {@link #diffTarget} in the background, then switch to it.
+     */
+    private void diff() {
+        final int generation = ++diffGeneration;
+        final int version = diffTargetVersion;
+        final List<PlaidItem> oldItems = new ArrayList<>(items);
+        final List<PlaidItem> newItems = new ArrayList<>(diffTarget);
+        differ.execute(new Runnable() {
+            @Override
+            public void run() {
+                final DiffUtil.DiffResult result =
+                        DiffUtil.calculateDiff(new ItemDiff(oldItems, newItems));
+                mainThread.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        // superseded by a later diff or by clear()
+                        if (generation != diffGeneration) return;
+                        if (version != diffTargetVersion) {
+                            // items were added to the target meanwhile so diff again
+                            diff();
+                            return;
+                        }
+                        // observers must be up to date with the old items before the diff applies
+                        updates.flush();
+                        items.clear();
+                        items.addAll(newItems);
+                        itemIndex.rebuild(items);
+                        diffTarget = null;
+                        diffTargetIndex.clear();
+                        result.dispatchUpdatesTo(FeedAdapter.this);
+                    }
+                });
+            }
+        });
     }
 
     @Override
@@ -393,10 +463,8 @@ public class FeedAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
     }
 
     public int getItemPosition(final long itemId) {
-        for (int position = 0; position < items.size(); position++) {
-            if (getItem(position).id == itemId) return position;
-        }
-        return RecyclerView.NO_POSITION;
+        final int position = itemIndex.indexOf(itemId);
+        return position != ItemIndex.NO_POSITION ? position : RecyclerView.NO_POSITION;
     }
 
     @Override
@@ -430,8 +498,11 @@ public class FeedAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
         return items.size();
     }
 
-    private int getLoadingMoreItemPosition() {
-        return showLoadingMore ? getItemCount() - 1 : RecyclerView.NO_POSITION;
+    /**
+     * @return a read only view of the items displayed, e.g. to snapshot them
+     */
+    public List<PlaidItem> getItems() {
+        return Collections.unmodifiableList(diffTarget != null ? diffTarget : items);
     }
 
     /**
@@ -442,35 +513,50 @@ public class FeedAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
     public void dataStartedLoading() {
         if (showLoadingMore) return;
         showLoadingMore = true;
-
-        Handler handler = new Handler();
-        final Runnable r = new Runnable() {
-            @Override
-            public void run() {
-                notifyItemInserted(getLoadingMoreItemPosition());
-            }
-        };
-        handler.post(r);
-
-
+        updates.footerChanged(true);
     }
 
     @Override
     public void dataFinishedLoading() {
         if (!showLoadingMore) return;
-        final int loadingPos = getLoadingMoreItemPosition();
         showLoadingMore = false;
-        Handler handler = new Handler();
-        final Runnable r = new Runnable() {
-            @Override
-            public void run() {
-                notifyItemRemoved(loadingPos);
-            }
-        };
-        handler.post(r);
+        // coalesced with the items loaded, so a quick load may not show the footer at all
+        updates.footerChanged(false);
+    }
 
+    /**
+     * Diffs lists of items by their (stable) ids. An item is never replaced by a newer version of
+     * itself (duplicates are dropped) so the same instance means the same content.
+     */
+    private static class ItemDiff extends DiffUtil.Callback {
+
+        private final List<PlaidItem> oldItems;
+        private final List<PlaidItem> newItems;
 
+        ItemDiff(List<PlaidItem> oldItems, List<PlaidItem> newItems) {
+            this.oldItems = oldItems;
+            this.newItems = newItems;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return oldItems.size();
+        }
 
+        @Override
+        public int getNewListSize() {
+            return newItems.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return oldItems.get(oldItemPosition).id == newItems.get(newItemPosition).id;
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            return oldItems.get(oldItemPosition) == newItems.get(newItemPosition);
+        }
     }
 
     public static SharedElementCallback createSharedElementReenterCallback(
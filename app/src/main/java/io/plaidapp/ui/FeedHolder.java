@@ -0,0 +1,139 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.ui;
+
+import android.app.Activity;
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import io.plaidapp.data.BaseDataManager;
+import io.plaidapp.data.PlaidItem;
+
+/**
+ * Holds a data manager and the items it has loaded across configuration changes, so that
+ * recreating an activity neither cancels in-flight requests nor reloads what is displayed.
+ * <p>
+ * An activity returns its holder from {@link Activity#onRetainNonConfigurationInstance()} and
+ * picks it back up from {@link Activity#getLastNonConfigurationInstance()}. The data manager must
+ * not reference the activity; instead it passes what it loads to {@link #onDataLoaded(List)} &
+ * {@link #onDataBatch(List)}, which forward to the currently attached {@link Host} (or hold on to
+ * them until one attaches).
+ */
+public class FeedHolder<M extends BaseDataManager<List<? extends PlaidItem>>> {
+
+    /**
+     * Receives data loaded whilst attached; implemented by the activity.
+     */
+    public interface Host {
+
+        void onDataLoaded(List<? extends PlaidItem> data);
+
+        void onDataBatch(List<? extends PlaidItem> data);
+    }
+
+    private M dataManager;
+    private Host host;
+    private List<PlaidItem> items = Collections.emptyList();
+    private final List<Delivery> pending = new ArrayList<>();
+
+    public M getDataManager() {
+        return dataManager;
+    }
+
+    public void setDataManager(@NonNull M dataManager) {
+        this.dataManager = dataManager;
+    }
+
+    /**
+     * @return the items displayed when the previous activity was {@link #retain(List) retained}
+     */
+    public List<PlaidItem> getItems() {
+        return items;
+    }
+
+    /**
+     * Attach an activity, delivering anything loaded whilst none was attached.
+     */
+    public void attach(@NonNull Host host) {
+        this.host = host;
+        for (Delivery delivery : pending) {
+            delivery.deliver(host);
+        }
+        pending.clear();
+    }
+
+    /**
+     * Record the items displayed by an activity which is being recreated; call from
+     * {@link Activity#onRetainNonConfigurationInstance()}.
+     */
+    public FeedHolder<M> retain(@NonNull List<? extends PlaidItem> displayed) {
+        items = new ArrayList<>(displayed);
+        return this;
+    }
+
+    /**
+     * Detach an activity which is being destroyed. Loading is cancelled unless the activity is
+     * being recreated.
+     */
+    public void detach(@NonNull Activity activity) {
+        host = null;
+        if (!activity.isChangingConfigurations()) {
+            dataManager.cancelLoading();
+            pending.clear();
+            items = Collections.emptyList();
+        }
+    }
+
+    public void onDataLoaded(List<? extends PlaidItem> data) {
+        if (host != null) {
+            host.onDataLoaded(data);
+        } else {
+            pending.add(new Delivery(data, false));
+        }
+    }
+
+    public void onDataBatch(List<? extends PlaidItem> data) {
+        if (host != null) {
+            host.onDataBatch(data);
+        } else {
+            pending.add(new Delivery(data, true));
+        }
+    }
+
+    private static class Delivery {
+
+        final List<? extends PlaidItem> data;
+        final boolean batch;
+
+        Delivery(List<? extends PlaidItem> data, boolean batch) {
+            this.data = data;
+            this.batch = batch;
+        }
+
+        void deliver(Host host) {
+            if (batch) {
+                host.onDataBatch(data);
+            } else {
+                host.onDataLoaded(data);
+            }
+        }
+    }
+
+}
@@ -69,6 +69,7 @@ import butterknife.BindView;
 import butterknife.ButterKnife;
 import io.plaidapp.R;
 import io.plaidapp.data.DataManager;
+import io.plaidapp.data.FeedSnapshot;
 import io.plaidapp.data.PlaidItem;
 import io.plaidapp.data.Source;
 import io.plaidapp.data.prefs.SourceManager;
@@ -82,6 +83,7 @@ import io.plaidapp.util.ViewUtils;
 public class HomeActivity extends Activity {
 
     private static final int RC_SEARCH = 0;
+    private static final String STATE_FEED_SNAPSHOT = "state_feed_snapshot";
 
     @BindView(R.id.drawer) DrawerLayout drawer;
     @BindView(R.id.toolbar) Toolbar toolbar;
@@ -97,6 +99,7 @@ public class HomeActivity extends Activity {
     private boolean monitoringConnectivity = false;
 
     // data
+    HomeFeed feed;
     DataManager dataManager;
     FeedAdapter adapter;
     FilterAdapter filtersAdapter;
@@ -117,19 +120,22 @@ public class HomeActivity extends Activity {
         }
         setExitSharedElementCallback(FeedAdapter.createSharedElementReenterCallback(this));
 
-        filtersAdapter = new FilterAdapter(this, SourceManager.getSources(this)
+        // the data layer outlives configuration changes, see onRetainNonConfigurationInstance
+        final HomeFeed retained = (HomeFeed) getLastNonConfigurationInstance();
+        feed = retained != null ? retained : createFeed(this);
+        filtersAdapter = feed.filtersAdapter;
+        dataManager = feed.getDataManager();
+        adapter = new FeedAdapter(this, dataManager, columns);
+        adapter.addAndResort(feed.getItems());
 
-      );
-        dataManager = new DataManager(this, filtersAdapter) {
+        grid.setAdapter(adapter);
+        // sources' items are removed asynchronously so check again once they have gone
+        adapter.registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
             @Override
-            public void onDataLoaded(List<? extends PlaidItem> data) {
-                adapter.addAndResort(data);
+            public void onItemRangeRemoved(int positionStart, int itemCount) {
                 checkEmptyState();
             }
-        };
-        adapter = new FeedAdapter(this, dataManager, columns);
-
-        grid.setAdapter(adapter);
+        });
         layoutManager = new StaggeredGridLayoutManager(columns, StaggeredGridLayoutManager.VERTICAL);
         /*layoutManager.setSpanSizeLookup(new GridLayoutManager.SpanSizeLookup() {
             @Override
@@ -209,7 +215,24 @@ public class HomeActivity extends Activity {
         filtersList.setAdapter(filtersAdapter);
         filtersList.setItemAnimator(new FilterAdapter.FilterAnimator());
         filtersAdapter.registerFilterChangedCallback(filtersChangedCallbacks);
-        dataManager.loadAllDataSources();
+        feed.attach(feedHost);
+        // a retained feed carries on where the previous instance left off (in-flight loads are
+        // delivered here & the grid restores its own scroll position); otherwise load it
+        if (retained == null) {
+            final FeedSnapshot snapshot = savedInstanceState != null
+                    ? FeedSnapshot.read(this, savedInstanceState.getString(STATE_FEED_SNAPSHOT))
+                    : null;
+            if (snapshot != null) {
+                // rebuild the grid as it was; further pages load as we scroll
+                dataManager.restorePageIndexes(snapshot.pageIndexes);
+                adapter.addAndResort(snapshot.items);
+                layoutManager.scrollToPosition(snapshot.scrollPosition);
+            } else {
+                // show the cached feed immediately whilst we revalidate from the network
+                dataManager.loadCachedDataSources();
+                dataManager.loadAllDataSources();
+            }
+        }
         ItemTouchHelper.Callback callback = new FilterTouchHelperCallback(filtersAdapter);
         ItemTouchHelper itemTouchHelper = new ItemTouchHelper(callback);
         itemTouchHelper.attachToRecyclerView(filtersList);
@@ -325,12 +348,85 @@ public class HomeActivity extends Activity {
         }
     }
 
+    @Override
+    public Object onRetainNonConfigurationInstance() {
+        return feed.retain(adapter.getItems());
+    }
+
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        // the feed is retained across configuration changes so only snapshot it otherwise
+        if (isChangingConfigurations()) return;
+        final int[] firstVisible = layoutManager.findFirstVisibleItemPositions(null);
+        int scrollPosition = RecyclerView.NO_POSITION;
+        for (int position : firstVisible) {
+            if (position != RecyclerView.NO_POSITION
+                    && (scrollPosition == RecyclerView.NO_POSITION || position < scrollPosition)) {
+                scrollPosition = position;
+            }
+        }
+        // only captures the items here; serializing & writing them happens in the background
+        outState.putString(STATE_FEED_SNAPSHOT,
+                FeedSnapshot.of(adapter.getItems(), scrollPosition).write(this));
+    }
+
     @Override
     protected void onDestroy() {
-        dataManager.cancelLoading();
+        // release everything referencing this instance, as the feed may be retained
+        filtersAdapter.unregisterFilterChangedCallback(filtersChangedCallbacks);
+        filtersList.setAdapter(null);
+        dataManager.unregisterCallback(adapter);
+        feed.detach(this);
         super.onDestroy();
     }
 
+    private static HomeFeed createFeed(Context context) {
+        final HomeFeed feed = new HomeFeed(new FilterAdapter(context,
+                SourceManager.getSources(context)));
+        // created outside of the activity so that it can be retained without leaking it
+        feed.setDataManager(new DataManager(context.getApplicationContext(),
+                feed.filtersAdapter) {
+            @Override
+            public void onDataLoaded(List<? extends PlaidItem> data) {
+                feed.onDataLoaded(data);
+            }
+
+            @Override
+            public void onDataBatch(List<? extends PlaidItem> data) {
+                feed.onDataBatch(data);
+            }
+        });
+        return feed;
+    }
+
+    /**
+     * The data manager, its sources and the items loaded; retained across configuration changes.
+     */
+    static class HomeFeed extends FeedHolder<DataManager> {
+
+        final FilterAdapter filtersAdapter;
+
+        HomeFeed(FilterAdapter filtersAdapter) {
+            this.filtersAdapter = filtersAdapter;
+        }
+    }
+
+    private final FeedHolder.Host feedHost = new FeedHolder.Host() {
+        @Override
+        public void onDataLoaded(List<? extends PlaidItem> data) {
+            adapter.addAndResort(data);
+            checkEmptyState();
+        }
+
+        @Override
+        public void onDataBatch(List<? extends PlaidItem> data) {
+            // bind the first items of a page whilst the rest are still loading
+            adapter.addAndResort(data);
+            checkEmptyState();
+        }
+    };
+
     // listener for notifying adapter when data sources are deactivated
     private FilterAdapter.FiltersChangedCallbacks filtersChangedCallbacks =
             new FilterAdapter.FiltersChangedCallbacks() {
@@ -386,6 +482,10 @@ public class HomeActivity extends Activity {
         } else {
             loading.setVisibility(View.GONE);
             setNoFiltersEmptyTextVisibility(View.GONE);
+            // we may be showing shots from the offline store
+            if (noConnection != null) {
+                noConnection.setVisibility(View.GONE);
+            }
         }
     }
 
@@ -529,15 +629,19 @@ public class HomeActivity extends Activity {
         connected = activeNetworkInfo != null && activeNetworkInfo.isConnected();
         if (!connected) {
             loading.setVisibility(View.GONE);
-            if (noConnection == null) {
-                final ViewStub stub = (ViewStub) findViewById(R.id.stub_no_connection);
-                noConnection = (ImageView) stub.inflate();
-            }
-            final AnimatedVectorDrawable avd =
-                    (AnimatedVectorDrawable) getDrawable(R.drawable.avd_no_connection);
-            if (noConnection != null && avd != null) {
-                noConnection.setImageDrawable(avd);
-                avd.start();
+            // only show the no connection state if we have nothing (cached or stored) to show
+            if (adapter.getDataItemCount() == 0) {
+                if (noConnection == null) {
+                    final ViewStub stub = (ViewStub) findViewById(R.id.stub_no_connection);
+                    noConnection = (ImageView) stub.inflate();
+                }
+                final AnimatedVectorDrawable avd =
+                        (AnimatedVectorDrawable) getDrawable(R.drawable.avd_no_connection);
+                if (noConnection != null && avd != null) {
+                    noConnection.setVisibility(View.VISIBLE);
+                    noConnection.setImageDrawable(avd);
+                    avd.start();
+                }
             }
 
             connectivityManager.registerNetworkCallback(
@@ -558,7 +662,9 @@ public class HomeActivity extends Activity {
                 @Override
                 public void run() {
                     TransitionManager.beginDelayedTransition(drawer);
-                    noConnection.setVisibility(View.GONE);
+                    if (noConnection != null) {
+                        noConnection.setVisibility(View.GONE);
+                    }
                     loading.setVisibility(View.VISIBLE);
                     dataManager.loadAllDataSources();
                 }
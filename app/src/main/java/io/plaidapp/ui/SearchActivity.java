@@ -19,10 +19,12 @@ package io.plaidapp.ui;
 import android.app.Activity;
 import android.app.SearchManager;
 import android.app.SharedElementCallback;
+import android.content.Context;
 import android.content.Intent;
 import android.graphics.Point;
 import android.graphics.Typeface;
 import android.os.Bundle;
+import android.support.annotation.NonNull;
 import android.support.annotation.TransitionRes;
 import android.support.v7.widget.RecyclerView;
 import android.support.v7.widget.StaggeredGridLayoutManager;
@@ -86,10 +88,30 @@ public class SearchActivity extends Activity {
     @BindView(R.id.results_scrim) View resultsScrim;
     @BindInt(R.integer.num_columns) int columns;
     @BindDimen(R.dimen.z_app_bar) float appBarElevation;
+    FeedHolder<SearchDataManager> feed;
     SearchDataManager dataManager;
     FeedAdapter adapter;
     private TextView noResults;
     private SparseArray<Transition> transitions = new SparseArray<>();
+    private final SearchAsYouType searchAsYouType = new SearchAsYouType(
+            new SearchAsYouType.Search() {
+                @NonNull
+                @Override
+                public String getQuery() {
+                    return dataManager.getQuery();
+                }
+
+                @Override
+                public void cancel() {
+                    // starts a new generation, so late results for the old query are dropped
+                    dataManager.clear();
+                }
+
+                @Override
+                public void search(@NonNull String query) {
+                    searchIncrementally(query);
+                }
+            });
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -98,26 +120,12 @@ public class SearchActivity extends Activity {
         ButterKnife.bind(this);
         setupSearchView();
 
-        dataManager = new SearchDataManager(this) {
-            @Override
-            public void onDataLoaded(List<? extends PlaidItem> data) {
-                if (data != null && data.size() > 0) {
-                    if (results.getVisibility() != View.VISIBLE) {
-                        TransitionManager.beginDelayedTransition(container,
-                                getTransition(R.transition.search_show_results));
-                        progress.setVisibility(View.GONE);
-                        results.setVisibility(View.VISIBLE);
-                        fab.setVisibility(View.VISIBLE);
-                    }
-                    adapter.addAndResort(data);
-                } else {
-                    TransitionManager.beginDelayedTransition(
-                            container, getTransition(R.transition.auto));
-                    progress.setVisibility(View.GONE);
-                    setNoResultsVisibility(View.VISIBLE);
-                }
-            }
-        };
+        // the data layer outlives configuration changes, see onRetainNonConfigurationInstance
+        @SuppressWarnings("unchecked")
+        final FeedHolder<SearchDataManager> retained =
+                (FeedHolder<SearchDataManager>) getLastNonConfigurationInstance();
+        feed = retained != null ? retained : createFeed(this);
+        dataManager = feed.getDataManager();
         adapter = new FeedAdapter(this, dataManager, columns);
         setExitSharedElementCallback(FeedAdapter.createSharedElementReenterCallback(this));
         results.setAdapter(adapter);
@@ -139,7 +147,18 @@ public class SearchActivity extends Activity {
         results.setHasFixedSize(true);
 
         setupTransitions();
-        onNewIntent(getIntent());
+        if (retained != null) {
+            // show the results so far; in-flight searches are delivered once attached
+            if (!feed.getItems().isEmpty()) {
+                feedHost.onDataLoaded(feed.getItems());
+            } else if (dataManager.isDataLoading()) {
+                progress.setVisibility(View.VISIBLE);
+            }
+            feed.attach(feedHost);
+        } else {
+            feed.attach(feedHost);
+            onNewIntent(getIntent());
+        }
         ShortcutHelper.reportSearchUsed(this);
     }
 
@@ -170,12 +189,64 @@ public class SearchActivity extends Activity {
         super.onPause();
     }
 
+    @Override
+    public Object onRetainNonConfigurationInstance() {
+        return feed.retain(adapter.getItems());
+    }
+
     @Override
     protected void onDestroy() {
-        dataManager.cancelLoading();
+        searchAsYouType.cancel();
+        // release everything referencing this instance, as the feed may be retained
+        dataManager.unregisterCallback(adapter);
+        feed.detach(this);
         super.onDestroy();
     }
 
+    private static FeedHolder<SearchDataManager> createFeed(Context context) {
+        final FeedHolder<SearchDataManager> feed = new FeedHolder<>();
+        // created outside of the activity so that it can be retained without leaking it
+        feed.setDataManager(new SearchDataManager(context.getApplicationContext()) {
+            @Override
+            public void onDataLoaded(List<? extends PlaidItem> data) {
+                feed.onDataLoaded(data);
+            }
+
+            @Override
+            public void onDataBatch(List<? extends PlaidItem> data) {
+                feed.onDataBatch(data);
+            }
+        });
+        return feed;
+    }
+
+    private final FeedHolder.Host feedHost = new FeedHolder.Host() {
+        @Override
+        public void onDataLoaded(List<? extends PlaidItem> data) {
+            if (data != null && data.size() > 0) {
+                if (results.getVisibility() != View.VISIBLE) {
+                    TransitionManager.beginDelayedTransition(container,
+                            getTransition(R.transition.search_show_results));
+                    progress.setVisibility(View.GONE);
+                    results.setVisibility(View.VISIBLE);
+                    fab.setVisibility(View.VISIBLE);
+                }
+                adapter.addAndResort(data);
+            } else {
+                TransitionManager.beginDelayedTransition(
+                        container, getTransition(R.transition.auto));
+                progress.setVisibility(View.GONE);
+                setNoResultsVisibility(View.VISIBLE);
+            }
+        }
+
+        @Override
+        public void onDataBatch(List<? extends PlaidItem> data) {
+            // batches are never empty so this just reveals & adds the first results early
+            onDataLoaded(data);
+        }
+    };
+
     @Override
     public void onEnterAnimationComplete() {
         // focus the search view once the enter transition finishes
@@ -266,6 +337,7 @@ public class SearchActivity extends Activity {
     }
 
     void searchFor(String query) {
+        cancelPendingSearch();
         clearResults();
         progress.setVisibility(View.VISIBLE);
         ImeUtils.hideIme(searchView);
@@ -273,6 +345,24 @@ public class SearchActivity extends Activity {
         dataManager.searchFor(query);
     }
 
+    /**
+     * Search whilst the user is typing: unlike {@link #searchFor(String)} this leaves the IME up.
+     * Starting a new query cancels the previous one's in-flight requests.
+     */
+    void searchIncrementally(String query) {
+        clearResults();
+        progress.setVisibility(View.VISIBLE);
+        dataManager.searchFor(query);
+    }
+
+    void debounceSearch(String query) {
+        searchAsYouType.onQueryChanged(query);
+    }
+
+    void cancelPendingSearch() {
+        searchAsYouType.cancel();
+    }
+
     Transition getTransition(@TransitionRes int transitionId) {
         Transition transition = transitions.get(transitionId);
         if (transition == null) {
@@ -300,7 +390,10 @@ public class SearchActivity extends Activity {
             @Override
             public boolean onQueryTextChange(String query) {
                 if (TextUtils.isEmpty(query)) {
+                    cancelPendingSearch();
                     clearResults();
+                } else {
+                    debounceSearch(query);
                 }
                 return true;
             }
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.ui;
+
+import android.os.Handler;
+import android.support.annotation.NonNull;
+
+/**
+ * Searches whilst the user is typing, once they pause. A keystroke which changes the query stops
+ * the search for the previous query straight away, so that its results can't arrive (and be
+ * shown) whilst the user is still typing.
+ * <p>
+ * Must be used on the main thread.
+ */
+class SearchAsYouType implements Runnable {
+
+    // wait for the user to pause typing before searching
+    static final long DEBOUNCE_MS = 300L;
+
+    /**
+     * The search being typed into.
+     */
+    interface Search {
+
+        /**
+         * @return the query currently searched for, if any
+         */
+        @NonNull String getQuery();
+
+        /**
+         * Cancel the search for the current query; any of its late results must be dropped.
+         */
+        void cancel();
+
+        void search(@NonNull String query);
+    }
+
+    private final Search search;
+    private final Handler handler = new Handler();
+    private String pendingQuery;
+
+    SearchAsYouType(@NonNull Search search) {
+        this.search = search;
+    }
+
+    /**
+     * The user has typed, leaving the given (non-empty) query.
+     */
+    void onQueryChanged(@NonNull String query) {
+        if (!query.equals(search.getQuery())) {
+            search.cancel();
+        }
+        pendingQuery = query;
+        removeCallbacks();
+        postDelayed();
+    }
+
+    /**
+     * Forget any query waiting for the user to pause, e.g. as it has been submitted.
+     */
+    void cancel() {
+        pendingQuery = null;
+        removeCallbacks();
+    }
+
+    @Override
+    public void run() {
+        if (pendingQuery != null && !pendingQuery.equals(search.getQuery())) {
+            search.search(pendingQuery);
+        }
+        pendingQuery = null;
+    }
+
+    void postDelayed() {
+        handler.postDelayed(this, DEBOUNCE_MS);
+    }
+
+    void removeCallbacks() {
+        handler.removeCallbacks(this);
+    }
+
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.ui.recyclerview;
+
+import android.support.annotation.NonNull;
+import android.support.v7.widget.RecyclerView;
+import android.view.Choreographer;
+
+/**
+ * Collects the updates to an adapter which appends items to a list followed by an optional
+ * "loading more" footer, and notifies them together on the next frame: items appended within a
+ * frame as a single range insertion, and the footer's visibility only if it changed overall.
+ * <p>
+ * Adapters may change their data immediately (e.g. from a scroll callback, where notifying is not
+ * allowed) and report it here; must be used on the main thread.
+ */
+public class AppendUpdateBatcher implements Choreographer.FrameCallback {
+
+    /**
+     * The parts of an adapter which are notified.
+     */
+    interface Target {
+
+        boolean hasObservers();
+
+        int getItemCount();
+
+        void notifyItemRangeInserted(int positionStart, int itemCount);
+
+        void notifyItemInserted(int position);
+
+        void notifyItemRemoved(int position);
+    }
+
+    private final Target adapter;
+    private int insertStart;
+    private int insertCount = 0;
+    private boolean footerShown;
+    private boolean footerNotified;
+    private boolean scheduled = false;
+
+    /**
+     * @param footerShown whether the adapter currently shows the footer
+     */
+    public AppendUpdateBatcher(@NonNull final RecyclerView.Adapter<?> adapter,
+                               boolean footerShown) {
+        this(new Target() {
+            @Override
+            public boolean hasObservers() {
+                return adapter.hasObservers();
+            }
+
+            @Override
+            public int getItemCount() {
+                return adapter.getItemCount();
+            }
+
+            @Override
+            public void notifyItemRangeInserted(int positionStart, int itemCount) {
+                adapter.notifyItemRangeInserted(positionStart, itemCount);
+            }
+
+            @Override
+            public void notifyItemInserted(int position) {
+                adapter.notifyItemInserted(position);
+            }
+
+            @Override
+            public void notifyItemRemoved(int position) {
+                adapter.notifyItemRemoved(position);
+            }
+        }, footerShown);
+    }
+
+    AppendUpdateBatcher(@NonNull Target adapter, boolean footerShown) {
+        this.adapter = adapter;
+        this.footerShown = footerShown;
+        footerNotified = footerShown;
+    }
+
+    /**
+     * Report that items have been appended to the adapter's data (before any footer).
+     */
+    public void itemsAppended(int position, int count) {
+        if (count <= 0) return;
+        if (!adapter.hasObservers()) {
+            // nothing to tell; a RecyclerView attaching later reads the data as it is
+            return;
+        }
+        if (insertCount > 0 && position != insertStart + insertCount) {
+            // not a continuation of the pending range so notify that first
+            flush();
+        }
+        if (insertCount == 0) insertStart = position;
+        insertCount += count;
+        schedule();
+    }
+
+    /**
+     * Report that the adapter has shown or hidden its footer.
+     */
+    public void footerChanged(boolean shown) {
+        footerShown = shown;
+        if (!adapter.hasObservers()) {
+            footerNotified = shown;
+            return;
+        }
+        schedule();
+    }
+
+    /**
+     * Notify pending updates immediately, e.g. before notifying other changes which assume that
+     * observers are up to date.
+     */
+    public void flush() {
+        if (insertCount > 0) {
+            // items are inserted ahead of a footer which is already shown, so it moves down
+            adapter.notifyItemRangeInserted(insertStart, insertCount);
+            insertCount = 0;
+        }
+        if (footerShown != footerNotified) {
+            // the footer follows the data
+            final int footerPosition = adapter.getItemCount() - (footerShown ? 1 : 0);
+            if (footerShown) {
+                adapter.notifyItemInserted(footerPosition);
+            } else {
+                adapter.notifyItemRemoved(footerPosition);
+            }
+            footerNotified = footerShown;
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        scheduled = false;
+        flush();
+    }
+
+    private void schedule() {
+        if (scheduled) return;
+        scheduled = true;
+        postFrameCallback();
+    }
+
+    void postFrameCallback() {
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+}
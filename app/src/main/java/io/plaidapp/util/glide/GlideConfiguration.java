@@ -21,11 +21,17 @@ import android.content.Context;
 
 import com.bumptech.glide.Glide;
 import com.bumptech.glide.GlideBuilder;
+import com.bumptech.glide.integration.okhttp3.OkHttpUrlLoader;
 import com.bumptech.glide.load.DecodeFormat;
+import com.bumptech.glide.load.model.GlideUrl;
 import com.bumptech.glide.module.GlideModule;
 
+import java.io.InputStream;
+
+import io.plaidapp.data.api.HttpClientProvider;
+
 /**
- * Configure Glide to set desired image quality.
+ * Configure Glide to set desired image quality and to load over the app's shared HTTP stack.
  */
 public class GlideConfiguration implements GlideModule {
 
@@ -40,6 +46,8 @@ public class GlideConfiguration implements GlideModule {
 
     @Override
     public void registerComponents(Context context, Glide glide) {
-
+        // share the connection pool & dispatcher with the data layer
+        glide.register(GlideUrl.class, InputStream.class,
+                new OkHttpUrlLoader.Factory(HttpClientProvider.getImageClient(context)));
     }
 }
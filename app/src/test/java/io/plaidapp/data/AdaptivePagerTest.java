@@ -0,0 +1,172 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.data;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okio.Buffer;
+import retrofit2.Response;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AdaptivePagerTest {
+
+    private static final int ITEMS = AdaptivePager.BASE_PAGE_SIZE;
+    private static final int BODY_BYTES = 3 * 1024;
+
+    private final MockWebServer server = new MockWebServer();
+    private AdaptivePager pager;
+    private OkHttpClient client;
+
+    @Before
+    public void setUp() throws IOException {
+        server.start();
+        pager = new AdaptivePager();
+        client = new OkHttpClient.Builder()
+                .addInterceptor(AdaptivePager.interceptor())
+                .build();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void startsWithTheBasePageSize() {
+        assertEquals(1, pager.requestFrom(1).pageCount);
+        assertEquals(ITEMS, pager.requestFrom(1).pageSize);
+    }
+
+    @Test
+    public void fastResponsesRequestSeveralPages() throws IOException {
+        record(fastResponse());
+        assertEquals(4, pager.requestFrom(1).pageCount);
+    }
+
+    @Test
+    public void slowBodyWithLowLatencyRequestsOnePage() throws IOException {
+        // the headers arrive straight away but the body trickles in
+        record(slowResponse());
+        assertEquals(1, pager.requestFrom(1).pageCount);
+    }
+
+    @Test
+    public void slowBodyReducesPageSize() throws IOException {
+        record(fastResponse());
+        int pageCount = pager.requestFrom(1).pageCount;
+        assertEquals(4, pageCount);
+        for (int i = 0; i < 2; i++) {
+            record(slowResponse());
+            final int slowerPageCount = pager.requestFrom(1).pageCount;
+            assertTrue(slowerPageCount <= pageCount);
+            pageCount = slowerPageCount;
+        }
+        assertTrue(pageCount < 4);
+    }
+
+    @Test
+    public void requestsAreAlignedToTheirPageCount() throws IOException {
+        record(fastResponse());
+        final AdaptivePager.PageRequest aligned = pager.requestFrom(5);
+        assertEquals(4, aligned.pageCount);
+        assertEquals(2, aligned.remotePage);
+        assertEquals(8, aligned.lastPage());
+        // page 3 can only start a request of two pages
+        final AdaptivePager.PageRequest unaligned = pager.requestFrom(3);
+        assertEquals(2, unaligned.pageCount);
+        assertEquals(2, unaligned.remotePage);
+    }
+
+    @Test
+    public void untimedResponsesAreIgnored() throws IOException {
+        client = new OkHttpClient();
+        record(slowResponse());
+        assertEquals(1, pager.requestFrom(1).pageCount);
+        assertEquals(-1f, pager.getAverageResponseMs(), 0f);
+    }
+
+    @Test
+    public void unreadBodiesAreIgnored() throws IOException {
+        server.enqueue(fastResponse());
+        final okhttp3.Response raw = client.newCall(request()).execute();
+        pager.record(Response.success(null, raw), ITEMS);
+        raw.close();
+        assertEquals(-1f, pager.getAverageResponseMs(), 0f);
+    }
+
+    @Test
+    public void setsLogicalPagesOfMultiPageRequests() throws IOException {
+        record(fastResponse());
+        final AdaptivePager.PageRequest request = pager.requestFrom(5);
+        final List<PlaidItem> items = new ArrayList<>();
+        for (int i = 0; i < request.pageSize; i++) {
+            items.add(new PlaidItem(i, "item " + i, null) { });
+        }
+        AdaptivePager.setPages(items.subList(0, 20), request);
+        AdaptivePager.setPages(items.subList(20, items.size()), request, 20);
+        for (int i = 0; i < items.size(); i++) {
+            assertEquals(5 + i / ITEMS, items.get(i).page);
+        }
+    }
+
+    private void record(MockResponse response) throws IOException {
+        server.enqueue(response);
+        final okhttp3.Response raw = client.newCall(request()).execute();
+        // read the whole body, as a converter would
+        raw.body().string();
+        pager.record(Response.success(null, raw), ITEMS);
+    }
+
+    private Request request() {
+        return new Request.Builder().url(server.url("/search")).build();
+    }
+
+    private static MockResponse fastResponse() {
+        return new MockResponse().setBody(body());
+    }
+
+    /**
+     * A response taking around 1.2s to transfer its body.
+     */
+    private static MockResponse slowResponse() {
+        return new MockResponse()
+                .setBody(body())
+                .throttleBody(256, 100, TimeUnit.MILLISECONDS);
+    }
+
+    private static Buffer body() {
+        final Buffer body = new Buffer();
+        for (int i = 0; i < BODY_BYTES; i++) {
+            body.writeByte('a' + i % 26);
+        }
+        return body;
+    }
+
+}
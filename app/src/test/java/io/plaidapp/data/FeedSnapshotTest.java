@@ -0,0 +1,135 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.data;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import io.plaidapp.data.api.dribbble.model.Images;
+import io.plaidapp.data.api.dribbble.model.Shot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class FeedSnapshotTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void roundTripsItemsScrollPositionAndPageIndexes() throws IOException {
+        final List<PlaidItem> items = new ArrayList<>();
+        items.add(shot(1L, "dribbble-search-material", 1));
+        items.add(shot(2L, "dribbble-search-android", 2));
+        items.add(shot(3L, "dribbble-search-material", 3));
+        final File dir = folder.newFolder();
+
+        final FeedSnapshot snapshot = FeedSnapshot.read(dir, FeedSnapshot.of(items, 7).write(dir));
+
+        assertNotNull(snapshot);
+        assertEquals(7, snapshot.scrollPosition);
+        assertEquals(3, snapshot.items.size());
+        for (int i = 0; i < items.size(); i++) {
+            final Shot expected = (Shot) items.get(i);
+            final Shot actual = snapshot.items.get(i);
+            assertEquals(expected.id, actual.id);
+            assertEquals(expected.title, actual.title);
+            assertEquals(expected.html_url, actual.html_url);
+            assertEquals(expected.images.normal, actual.images.normal);
+            assertEquals(expected.likes_count, actual.likes_count);
+            assertEquals(expected.getCreatedAtMillis(), actual.getCreatedAtMillis());
+            assertEquals(expected.dataSource, actual.dataSource);
+            assertEquals(expected.page, actual.page);
+        }
+        // paging resumes after the last page of each source displayed
+        assertEquals(Integer.valueOf(3), snapshot.pageIndexes.get("dribbble-search-material"));
+        assertEquals(Integer.valueOf(2), snapshot.pageIndexes.get("dribbble-search-android"));
+    }
+
+    @Test
+    public void capturesItemsWhenTaken() throws IOException {
+        final Shot shot = shot(1L, "dribbble-search-material", 1);
+        final List<PlaidItem> items = new ArrayList<>();
+        items.add(shot);
+        final FeedSnapshot snapshot = FeedSnapshot.of(items, 0);
+        // the feed carries on changing whilst the snapshot is written
+        items.clear();
+        shot.dataSource = "dribbble-search-android";
+        shot.page = 4;
+        final File dir = folder.newFolder();
+
+        final FeedSnapshot restored = FeedSnapshot.read(dir, snapshot.write(dir));
+
+        assertEquals(1, restored.items.size());
+        assertEquals("dribbble-search-material", restored.items.get(0).dataSource);
+        assertEquals(1, restored.items.get(0).page);
+    }
+
+    @Test
+    public void onlyTheLatestSnapshotIsKept() throws IOException {
+        final List<PlaidItem> items = new ArrayList<>();
+        items.add(shot(1L, "dribbble-search-material", 1));
+        final File dir = folder.newFolder();
+
+        final String first = FeedSnapshot.of(items, 0).write(dir);
+        final String second = FeedSnapshot.of(items, 0).write(dir);
+
+        assertNotNull(FeedSnapshot.read(dir, second));
+        assertNull(FeedSnapshot.read(dir, first));
+        assertEquals(1, dir.listFiles().length);
+    }
+
+    @Test
+    public void missingOrUnreadableSnapshotsAreIgnored() throws IOException {
+        final File dir = folder.newFolder();
+        assertNull(FeedSnapshot.read(dir, null));
+        assertNull(FeedSnapshot.read(dir, "missing"));
+
+        // a blob claiming to be longer than the file
+        try (DataOutputStream out =
+                     new DataOutputStream(new FileOutputStream(new File(dir, "truncated")))) {
+            out.writeInt(1);
+            out.writeInt(1024);
+            out.writeInt(0);
+        }
+        assertNull(FeedSnapshot.read(dir, "truncated"));
+    }
+
+    private static Shot shot(long id, String dataSource, int page) {
+        final Shot shot = new Shot.Builder()
+                .setId(id)
+                .setTitle("Shot " + id)
+                .setHtmlUrl("https://dribbble.com/shots/" + id)
+                .setImages(new Images(null, "https://cdn.dribbble.com/" + id + ".png", null))
+                .setLikesCount(id * 10L)
+                .setCreatedAt(1492905600000L + id)
+                .build();
+        shot.dataSource = dataSource;
+        shot.page = page;
+        return shot;
+    }
+
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.data;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import io.plaidapp.data.api.dribbble.model.Shot;
+
+import static io.plaidapp.data.PrefetchBuffer.NO_PAGE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PrefetchBufferTest {
+
+    private static final String KEY = "dribbble_search_material";
+
+    private PrefetchBuffer buffer;
+
+    @Before
+    public void setUp() {
+        buffer = new PrefetchBuffer(2);
+    }
+
+    @Test
+    public void prefetchesThePagesFollowingThePageIndex() {
+        assertEquals(4, buffer.nextPage(KEY, 3, false));
+        assertTrue(buffer.offer(KEY, 4, 3, page()));
+        assertEquals(5, buffer.nextPage(KEY, 3, false));
+        assertTrue(buffer.offer(KEY, 5, 3, page()));
+
+        // full
+        assertEquals(NO_PAGE, buffer.nextPage(KEY, 3, false));
+        assertFalse(buffer.isWanted(KEY, 6, 3));
+    }
+
+    @Test
+    public void deliveredPagesHandOffToThePageIndex() {
+        final List<Shot> four = page();
+        final List<Shot> five = page();
+        buffer.offer(KEY, 4, 3, four);
+        buffer.offer(KEY, 5, 3, five);
+
+        assertSame(four, buffer.poll(KEY));
+        // the caller advances the page index to the delivered page, so the rest still line up
+        assertEquals(6, buffer.nextPage(KEY, 4, false));
+        assertSame(five, buffer.poll(KEY));
+        assertEquals(6, buffer.nextPage(KEY, 5, false));
+        assertNull(buffer.poll(KEY));
+    }
+
+    @Test
+    public void discardsPagesOvertakenByALoad() {
+        assertEquals(4, buffer.nextPage(KEY, 3, false));
+
+        // page 4 was loaded directly whilst it was being prefetched
+        assertFalse(buffer.isWanted(KEY, 4, 4));
+        assertFalse(buffer.offer(KEY, 4, 4, page()));
+        assertEquals(0, buffer.size(KEY));
+
+        // so the page to prefetch moves on, rather than stalling
+        assertEquals(5, buffer.nextPage(KEY, 4, false));
+    }
+
+    @Test
+    public void discardsPagesOfResetSources() {
+        buffer.offer(KEY, 4, 3, page());
+        buffer.clear(KEY);
+
+        assertFalse(buffer.offer(KEY, 5, 0, page()));
+        assertEquals(NO_PAGE, buffer.nextPage(KEY, 0, false));
+        assertNull(buffer.poll(KEY));
+    }
+
+    @Test
+    public void skipsMeteredNetworks() {
+        assertEquals(NO_PAGE, buffer.nextPage(KEY, 3, true));
+    }
+
+    @Test
+    public void zeroDepthDisablesPrefetching() {
+        buffer.offer(KEY, 4, 3, page());
+        buffer.setDepth(0);
+
+        assertEquals(0, buffer.size(KEY));
+        assertEquals(NO_PAGE, buffer.nextPage(KEY, 3, false));
+        assertFalse(buffer.offer(KEY, 4, 3, page()));
+    }
+
+    private static List<Shot> page() {
+        return Collections.singletonList(new Shot.Builder().setId(1L).build());
+    }
+
+}
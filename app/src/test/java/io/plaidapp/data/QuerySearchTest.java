@@ -0,0 +1,155 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.data;
+
+import android.support.annotation.NonNull;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import io.plaidapp.data.api.dribbble.CoalescingDribbbleSearchService;
+import io.plaidapp.data.api.dribbble.DribbbleSearchService;
+import io.plaidapp.data.api.dribbble.model.Shot;
+import okhttp3.Request;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Searches for a query made by different data managers, e.g. a saved search in the feed and the
+ * active search, must ask for the same pages so that they are coalesced.
+ */
+public class QuerySearchTest {
+
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(@NonNull Runnable command) {
+            command.run();
+        }
+    };
+
+    private AdaptivePager pager;
+    private RecordingSearchService delegate;
+    private DribbbleSearchService service;
+
+    @Before
+    public void setUp() {
+        pager = new AdaptivePager();
+        delegate = new RecordingSearchService();
+        service = new CoalescingDribbbleSearchService(delegate, DIRECT);
+    }
+
+    @Test
+    public void savedAndActiveSearchesForAPageAreCoalesced() {
+        // as DataManager loads a saved search & SearchDataManager searches for the same query
+        BaseDataManager.searchQuery(service, "material", pager.requestFrom(1))
+                .enqueue(new IgnoringCallback());
+        BaseDataManager.searchQuery(service, "material", pager.requestFrom(1))
+                .enqueue(new IgnoringCallback());
+
+        assertEquals(1, delegate.searches.size());
+        assertEquals("material\u00001\u0000" + AdaptivePager.BASE_PAGE_SIZE + "\u0000"
+                + BaseDataManager.QUERY_SORT, delegate.searches.get(0));
+    }
+
+    @Test
+    public void prefetchOfAPageIsCoalescedWithItsLoad() {
+        BaseDataManager.searchQuery(service, "material", pager.requestFrom(2))
+                .enqueue(new IgnoringCallback());
+        // DataManager prefetches a single logical page
+        BaseDataManager.searchQuery(service, "material", new AdaptivePager.PageRequest(2, 1))
+                .enqueue(new IgnoringCallback());
+
+        assertEquals(1, delegate.searches.size());
+    }
+
+    @Test
+    public void differentQueriesAndPagesAreNotCoalesced() {
+        BaseDataManager.searchQuery(service, "material", pager.requestFrom(1))
+                .enqueue(new IgnoringCallback());
+        BaseDataManager.searchQuery(service, "android", pager.requestFrom(1))
+                .enqueue(new IgnoringCallback());
+        BaseDataManager.searchQuery(service, "material", pager.requestFrom(2))
+                .enqueue(new IgnoringCallback());
+
+        assertEquals(3, delegate.searches.size());
+    }
+
+    private static class IgnoringCallback implements Callback<List<Shot>> {
+
+        @Override
+        public void onResponse(Call<List<Shot>> call, Response<List<Shot>> response) { }
+
+        @Override
+        public void onFailure(Call<List<Shot>> call, Throwable t) { }
+    }
+
+    /**
+     * Records the parameters of each search enqueued; the searches never complete.
+     */
+    private static class RecordingSearchService implements DribbbleSearchService {
+
+        final List<String> searches = new ArrayList<>();
+
+        @Override
+        public Call<List<Shot>> search(final String query, final Integer page,
+                                       final Integer pageSize, final String sort) {
+            return new Call<List<Shot>>() {
+                @Override
+                public Response<List<Shot>> execute() throws IOException {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public void enqueue(Callback<List<Shot>> callback) {
+                    searches.add(query + '\u0000' + page + '\u0000' + pageSize + '\u0000' + sort);
+                }
+
+                @Override
+                public boolean isExecuted() {
+                    return false;
+                }
+
+                @Override
+                public void cancel() { }
+
+                @Override
+                public boolean isCanceled() {
+                    return false;
+                }
+
+                @Override
+                public Call<List<Shot>> clone() {
+                    return search(query, page, pageSize, sort);
+                }
+
+                @Override
+                public Request request() {
+                    return new Request.Builder().url(ENDPOINT).build();
+                }
+            };
+        }
+    }
+
+}
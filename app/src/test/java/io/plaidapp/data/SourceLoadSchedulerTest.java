@@ -0,0 +1,244 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.data;
+
+import android.support.annotation.NonNull;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SourceLoadSchedulerTest {
+
+    private static final String HOST = "dribbble.com";
+    private static final String OTHER_HOST = "example.com";
+
+    private SourceLoadScheduler scheduler;
+    private List<String> started;
+    private List<SourceLoadScheduler.Ticket> tickets;
+
+    @Before
+    public void setUp() {
+        scheduler = new SourceLoadScheduler(2);
+        started = new ArrayList<>();
+        tickets = new ArrayList<>();
+    }
+
+    @Test
+    public void boundsConcurrentLoadsPerHost() {
+        schedule("a", HOST, 0);
+        schedule("b", HOST, 1);
+        schedule("c", HOST, 2);
+        schedule("d", OTHER_HOST, 3);
+
+        assertEquals(Arrays.asList("a", "b", "d"), started);
+        assertEquals(2, scheduler.runningCount(HOST));
+
+        scheduler.finished(tickets.get(0), true);
+        assertEquals(Arrays.asList("a", "b", "d", "c"), started);
+        assertEquals(2, scheduler.runningCount(HOST));
+    }
+
+    @Test
+    public void startsSourcesHigherInTheListFirst() {
+        schedule("a", HOST, 0);
+        schedule("b", HOST, 1);
+        schedule("far", HOST, 9);
+        schedule("near", HOST, 2);
+
+        scheduler.finished(tickets.get(0), true);
+        scheduler.finished(tickets.get(1), true);
+        assertEquals(Arrays.asList("a", "b", "near", "far"), started);
+    }
+
+    @Test
+    public void favoursSourcesWhichReturnResults() {
+        schedule("hit", HOST, 1);
+        schedule("miss", HOST, 0);
+        scheduler.finished(tickets.get(0), true);
+        scheduler.finished(tickets.get(1), false);
+        started.clear();
+
+        schedule("a", HOST, 0);
+        schedule("b", HOST, 0);
+        schedule("miss", HOST, 0);
+        schedule("hit", HOST, 1);
+        scheduler.finished(tickets.get(2), true);
+        assertEquals(Arrays.asList("a", "b", "hit"), started);
+    }
+
+    @Test
+    public void reschedulingASourceWhilstItsLoadFinishesDoesNotLeakCapacity() {
+        // a source is deactivated whilst loading, then reactivated before its canceled call
+        // reports back; both loads finish in turn
+        schedule("a", HOST, 0);
+        assertEquals(0, scheduler.cancel("a"));
+        schedule("a", HOST, 0);
+        assertEquals(2, scheduler.runningCount(HOST));
+
+        scheduler.finished(tickets.get(0), false);
+        assertEquals(1, scheduler.runningCount(HOST));
+        scheduler.finished(tickets.get(1), true);
+        assertEquals(0, scheduler.runningCount(HOST));
+
+        // reporting a load twice must not release someone else's slot
+        schedule("b", HOST, 0);
+        schedule("c", HOST, 0);
+        scheduler.finished(tickets.get(1), true);
+        assertEquals(2, scheduler.runningCount(HOST));
+
+        // so the host still runs its full quota
+        for (SourceLoadScheduler.Ticket ticket : new ArrayList<>(tickets)) {
+            scheduler.finished(ticket, true);
+        }
+        schedule("d", HOST, 0);
+        schedule("e", HOST, 0);
+        schedule("f", HOST, 0);
+        assertEquals(Arrays.asList("a", "a", "b", "c", "d", "e"), started);
+    }
+
+    @Test
+    public void cancelRemovesEveryPendingLoadOfASource() {
+        schedule("a", HOST, 0);
+        schedule("b", HOST, 0);
+        schedule("c", HOST, 0);
+        schedule("c", HOST, 0);
+
+        assertEquals(2, scheduler.cancel("c"));
+        scheduler.finished(tickets.get(0), true);
+        assertEquals(Arrays.asList("a", "b"), started);
+        assertEquals(1, scheduler.runningCount(HOST));
+    }
+
+    @Test
+    public void loadsFinishingAfterCancelAllAreIgnored() {
+        schedule("a", HOST, 0);
+        schedule("b", HOST, 0);
+        schedule("c", HOST, 0);
+
+        assertEquals(1, scheduler.cancelAll());
+        assertEquals(0, scheduler.runningCount(HOST));
+        schedule("d", HOST, 0);
+        scheduler.finished(tickets.get(0), false);
+        scheduler.finished(tickets.get(1), false);
+        assertEquals(1, scheduler.runningCount(HOST));
+        assertEquals(Arrays.asList("a", "b", "d"), started);
+    }
+
+    @Test
+    public void prefetchesWaitForOtherLoads() {
+        scheduler = new SourceLoadScheduler(3);
+        schedule("a", HOST, 0);
+        schedule("b", HOST, 1);
+        schedule("c", HOST, 2);
+        prefetch("a+1", HOST, 0);
+        schedule("d", HOST, 3);
+
+        scheduler.finished(tickets.get(0), true);
+        assertEquals(Arrays.asList("a", "b", "c", "d"), started);
+        scheduler.finished(tickets.get(1), true);
+        assertEquals(Arrays.asList("a", "b", "c", "d"), started);
+        scheduler.finished(tickets.get(2), true);
+        assertEquals(Arrays.asList("a", "b", "c", "d", "a+1"), started);
+    }
+
+    @Test
+    public void prefetchesLeaveASlotFree() {
+        scheduler = new SourceLoadScheduler(3);
+        prefetch("a+1", HOST, 0);
+        prefetch("b+1", HOST, 1);
+        prefetch("c+1", HOST, 2);
+        assertEquals(Arrays.asList("a+1", "b+1"), started);
+
+        // so a load the user is waiting for starts straight away
+        schedule("d", HOST, 3);
+        assertEquals(Arrays.asList("a+1", "b+1", "d"), started);
+    }
+
+    @Test
+    public void prefetchesNeedMoreThanOneSlot() {
+        assertTrue(scheduler.canPrefetch());
+
+        // a prefetch could never start, as it may not take the last free slot
+        scheduler = new SourceLoadScheduler(1);
+        assertFalse(scheduler.canPrefetch());
+        prefetch("a+1", HOST, 0);
+        assertEquals(Collections.<String>emptyList(), started);
+    }
+
+    @Test
+    public void prefetchesAreNotCountedAsCanceledLoads() {
+        scheduler = new SourceLoadScheduler(1);
+        schedule("a", HOST, 0);
+        prefetch("b", HOST, 1);
+        schedule("b", HOST, 1);
+        prefetch("c", HOST, 2);
+        schedule("d", HOST, 3);
+
+        assertEquals(1, scheduler.cancel("b"));
+        assertEquals(1, scheduler.cancelAll());
+    }
+
+    @Test
+    public void canceledPrefetchesDoNotStart() {
+        schedule("a", HOST, 0);
+        schedule("b", HOST, 1);
+        prefetch("a+1", HOST, 0);
+        prefetch("b+1", HOST, 1);
+
+        scheduler.cancelPrefetch("a+1");
+        scheduler.finished(tickets.get(0), true);
+        assertEquals(Arrays.asList("a", "b"), started);
+        scheduler.finished(tickets.get(1), true);
+        assertEquals(Arrays.asList("a", "b", "b+1"), started);
+
+        prefetch("c+1", HOST, 2);
+        scheduler.cancelPrefetches();
+        scheduler.finished(tickets.get(2), true);
+        assertEquals(Arrays.asList("a", "b", "b+1"), started);
+        assertEquals(0, scheduler.runningCount(HOST));
+    }
+
+    private void schedule(final String key, String host, int position) {
+        scheduler.schedule(key, host, position, new SourceLoadScheduler.Load() {
+            @Override
+            public void start(@NonNull SourceLoadScheduler.Ticket ticket) {
+                started.add(key);
+                tickets.add(ticket);
+            }
+        });
+    }
+
+    private void prefetch(final String key, String host, int position) {
+        scheduler.schedulePrefetch(key, host, position, new SourceLoadScheduler.Load() {
+            @Override
+            public void start(@NonNull SourceLoadScheduler.Ticket ticket) {
+                started.add(key);
+                tickets.add(ticket);
+            }
+        });
+    }
+
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.data;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SourceResilienceTest {
+
+    private static final String SOURCE = "dribbble-search-material";
+    private static final String OTHER_SOURCE = "dribbble-search-android";
+    private static final long COOL_DOWN_MS = 60_000L;
+    private static final int BREAKER_THRESHOLD = 5;
+
+    private long now;
+    private SourceResilience resilience;
+
+    @Before
+    public void setUp() {
+        now = 1_000_000L;
+        resilience = new SourceResilience() {
+            @Override
+            long now() {
+                return now;
+            }
+        };
+    }
+
+    @Test
+    public void retriesWithJitteredExponentialBackoff() {
+        for (int attempt = 1; attempt < SourceResilience.MAX_ATTEMPTS; attempt++) {
+            final long exponential = 1000L << (attempt - 1);
+            final long backoff = resilience.onFailure(SOURCE, attempt, 0L);
+            assertTrue(backoff >= exponential / 2);
+            assertTrue(backoff <= exponential);
+        }
+    }
+
+    @Test
+    public void givesUpAfterMaxAttempts() {
+        assertEquals(-1L, resilience.onFailure(SOURCE, SourceResilience.MAX_ATTEMPTS, 0L));
+    }
+
+    @Test
+    public void breakerOpensAfterConsecutiveFailures() {
+        failLoads(SOURCE, BREAKER_THRESHOLD - 1);
+        assertTrue(resilience.allowRequest(SOURCE));
+        assertEquals(-1L, resilience.onFailure(SOURCE, 1, 0L));
+
+        assertFalse(resilience.allowRequest(SOURCE));
+        assertEquals(SourceResilience.Stats.STATE_OPEN, stats(SOURCE).state);
+        // other sources are unaffected
+        assertTrue(resilience.allowRequest(OTHER_SOURCE));
+    }
+
+    @Test
+    public void successResetsConsecutiveFailures() {
+        failLoads(SOURCE, BREAKER_THRESHOLD - 1);
+        resilience.onSuccess(SOURCE);
+        failLoads(SOURCE, BREAKER_THRESHOLD - 1);
+
+        assertTrue(resilience.allowRequest(SOURCE));
+        assertEquals(2 * (BREAKER_THRESHOLD - 1), stats(SOURCE).failures);
+    }
+
+    @Test
+    public void openBreakerAllowsASingleProbeAfterCoolingDown() {
+        failLoads(SOURCE, BREAKER_THRESHOLD);
+        now += COOL_DOWN_MS - 1;
+        assertFalse(resilience.allowRequest(SOURCE));
+
+        now += 1;
+        assertTrue(resilience.allowRequest(SOURCE));
+        assertEquals(SourceResilience.Stats.STATE_HALF_OPEN, stats(SOURCE).state);
+        // only one probe at a time
+        assertFalse(resilience.allowRequest(SOURCE));
+    }
+
+    @Test
+    public void successfulProbeClosesBreaker() {
+        failLoads(SOURCE, BREAKER_THRESHOLD);
+        now += COOL_DOWN_MS;
+        assertTrue(resilience.allowRequest(SOURCE));
+        resilience.onSuccess(SOURCE);
+
+        assertEquals(SourceResilience.Stats.STATE_CLOSED, stats(SOURCE).state);
+        assertTrue(resilience.allowRequest(SOURCE));
+        assertTrue(resilience.allowRequest(SOURCE));
+    }
+
+    @Test
+    public void failedProbeReopensBreaker() {
+        failLoads(SOURCE, BREAKER_THRESHOLD);
+        now += COOL_DOWN_MS;
+        assertTrue(resilience.allowRequest(SOURCE));
+
+        // a failed probe is not retried and restarts the cool-down
+        assertEquals(-1L, resilience.onFailure(SOURCE, 1, 0L));
+        assertFalse(resilience.allowRequest(SOURCE));
+        now += COOL_DOWN_MS;
+        assertTrue(resilience.allowRequest(SOURCE));
+    }
+
+    @Test
+    public void canceledProbeAllowsAnotherProbe() {
+        failLoads(SOURCE, BREAKER_THRESHOLD);
+        now += COOL_DOWN_MS;
+        assertTrue(resilience.allowRequest(SOURCE));
+
+        resilience.onCanceled(SOURCE);
+        assertTrue(resilience.allowRequest(SOURCE));
+    }
+
+    @Test
+    public void countsAttemptsFailuresAndLostTime() {
+        resilience.onAttempt(SOURCE);
+        final long backoff = resilience.onFailure(SOURCE, 1, 300L);
+        resilience.onAttempt(SOURCE);
+        resilience.onSuccess(SOURCE);
+
+        final SourceResilience.Stats stats = stats(SOURCE);
+        assertEquals(2, stats.attempts);
+        assertEquals(1, stats.failures);
+        assertEquals(1, stats.retries);
+        assertEquals(0, stats.consecutiveFailures);
+        assertEquals(300L + backoff, stats.lostMillis);
+    }
+
+    @Test
+    public void statsAreASnapshot() {
+        resilience.onAttempt(SOURCE);
+        final Map<String, SourceResilience.Stats> snapshot = resilience.getAllStats();
+        resilience.onAttempt(SOURCE);
+
+        assertEquals(1, snapshot.get(SOURCE).attempts);
+        assertEquals(2, stats(SOURCE).attempts);
+    }
+
+    @Test
+    public void resetForgetsASource() {
+        failLoads(SOURCE, BREAKER_THRESHOLD);
+        resilience.reset(SOURCE);
+
+        assertTrue(resilience.allowRequest(SOURCE));
+        assertEquals(0, stats(SOURCE).failures);
+    }
+
+    private void failLoads(String key, int count) {
+        for (int i = 0; i < count; i++) {
+            resilience.onAttempt(key);
+            resilience.onFailure(key, 1, 0L);
+        }
+    }
+
+    private SourceResilience.Stats stats(String key) {
+        final SourceResilience.Stats stats = resilience.getAllStats().get(key);
+        return stats != null ? stats : new SourceResilience.Stats();
+    }
+
+}
@@ -0,0 +1,258 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.data.api.dribbble;
+
+import android.support.annotation.NonNull;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import io.plaidapp.data.api.dribbble.model.Shot;
+import okhttp3.Request;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CoalescingDribbbleSearchServiceTest {
+
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(@NonNull Runnable command) {
+            command.run();
+        }
+    };
+
+    private FakeSearchService delegate;
+    private CoalescingDribbbleSearchService service;
+
+    @Before
+    public void setUp() {
+        delegate = new FakeSearchService();
+        service = new CoalescingDribbbleSearchService(delegate, DIRECT);
+    }
+
+    @Test
+    public void concurrentIdenticalSearchesMakeOneRequest() {
+        final RecordingCallback first = new RecordingCallback();
+        final RecordingCallback second = new RecordingCallback();
+        service.search("material", 1, 12, "").enqueue(first);
+        service.search("material", 1, 12, "").enqueue(second);
+
+        assertEquals(1, delegate.calls.size());
+        delegate.calls.get(0).respond(shots(1L, 2L));
+        assertEquals(Arrays.asList(1L, 2L), first.ids());
+        assertEquals(Arrays.asList(1L, 2L), second.ids());
+    }
+
+    @Test
+    public void coalescedCallersReceiveTheirOwnShots() {
+        final RecordingCallback first = new RecordingCallback();
+        final RecordingCallback second = new RecordingCallback();
+        service.search("material", 1, 12, "").enqueue(first);
+        service.search("material", 1, 12, "").enqueue(second);
+        delegate.calls.get(0).respond(shots(1L, 2L));
+
+        for (int i = 0; i < 2; i++) {
+            assertNotSame(first.shots.get(i), second.shots.get(i));
+        }
+        // one caller modifying its shots must not affect the other's
+        first.shots.get(0).page = 3;
+        first.shots.get(0).dataSource = "first";
+        assertEquals(0, second.shots.get(0).page);
+        assertNull(second.shots.get(0).dataSource);
+    }
+
+    @Test
+    public void differentSearchesAreNotCoalesced() {
+        service.search("material", 1, 12, "").enqueue(new RecordingCallback());
+        service.search("material", 2, 12, "").enqueue(new RecordingCallback());
+        service.search("material", 1, 24, "").enqueue(new RecordingCallback());
+        service.search("material", 1, 12, "latest").enqueue(new RecordingCallback());
+        service.search("design", 1, 12, "").enqueue(new RecordingCallback());
+
+        assertEquals(5, delegate.calls.size());
+    }
+
+    @Test
+    public void searchAfterCompletionMakesANewRequest() {
+        service.search("material", 1, 12, "").enqueue(new RecordingCallback());
+        delegate.calls.get(0).respond(shots(1L));
+        service.search("material", 1, 12, "").enqueue(new RecordingCallback());
+
+        assertEquals(2, delegate.calls.size());
+    }
+
+    @Test
+    public void cancellingOneCallerKeepsTheRequestForOthers() {
+        final RecordingCallback canceled = new RecordingCallback();
+        final RecordingCallback remaining = new RecordingCallback();
+        final Call<List<Shot>> call = service.search("material", 1, 12, "");
+        call.enqueue(canceled);
+        service.search("material", 1, 12, "").enqueue(remaining);
+
+        call.cancel();
+        assertTrue(canceled.failure instanceof IOException);
+        assertFalse(delegate.calls.get(0).canceled);
+
+        delegate.calls.get(0).respond(shots(1L));
+        assertNull(canceled.shots);
+        assertEquals(Arrays.asList(1L), remaining.ids());
+    }
+
+    @Test
+    public void cancellingEveryCallerCancelsTheRequest() {
+        final Call<List<Shot>> first = service.search("material", 1, 12, "");
+        final Call<List<Shot>> second = service.search("material", 1, 12, "");
+        first.enqueue(new RecordingCallback());
+        second.enqueue(new RecordingCallback());
+
+        first.cancel();
+        second.cancel();
+        assertTrue(delegate.calls.get(0).canceled);
+
+        // a new caller must not attach to the canceled request
+        service.search("material", 1, 12, "").enqueue(new RecordingCallback());
+        assertEquals(2, delegate.calls.size());
+    }
+
+    @Test
+    public void failuresAreDeliveredToEveryCaller() {
+        final RecordingCallback first = new RecordingCallback();
+        final RecordingCallback second = new RecordingCallback();
+        service.search("material", 1, 12, "").enqueue(first);
+        service.search("material", 1, 12, "").enqueue(second);
+
+        final IOException failure = new IOException("offline");
+        delegate.calls.get(0).fail(failure);
+        assertEquals(failure, first.failure);
+        assertEquals(failure, second.failure);
+    }
+
+    private static List<Shot> shots(long... ids) {
+        final List<Shot> shots = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            shots.add(new Shot.Builder().setId(id).setTitle("Shot " + id).build());
+        }
+        return shots;
+    }
+
+    private static class RecordingCallback implements Callback<List<Shot>> {
+
+        List<Shot> shots;
+        Throwable failure;
+
+        @Override
+        public void onResponse(Call<List<Shot>> call, Response<List<Shot>> response) {
+            shots = response.body();
+        }
+
+        @Override
+        public void onFailure(Call<List<Shot>> call, Throwable t) {
+            failure = t;
+        }
+
+        List<Long> ids() {
+            final List<Long> ids = new ArrayList<>(shots.size());
+            for (Shot shot : shots) {
+                ids.add(shot.id);
+            }
+            return ids;
+        }
+    }
+
+    private static class FakeSearchService implements DribbbleSearchService {
+
+        final List<FakeCall> calls = new ArrayList<>();
+
+        @Override
+        public Call<List<Shot>> search(String query, Integer page, Integer pageSize,
+                                       String sort) {
+            return new FakeCall(this);
+        }
+    }
+
+    /**
+     * A call which completes when told to; records itself with its service when enqueued.
+     */
+    private static class FakeCall implements Call<List<Shot>> {
+
+        private final FakeSearchService service;
+        private Callback<List<Shot>> callback;
+        boolean canceled;
+
+        FakeCall(FakeSearchService service) {
+            this.service = service;
+        }
+
+        void respond(List<Shot> shots) {
+            callback.onResponse(this, Response.success(shots));
+        }
+
+        void fail(Throwable t) {
+            callback.onFailure(this, t);
+        }
+
+        @Override
+        public Response<List<Shot>> execute() throws IOException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void enqueue(Callback<List<Shot>> callback) {
+            this.callback = callback;
+            service.calls.add(this);
+        }
+
+        @Override
+        public boolean isExecuted() {
+            return callback != null;
+        }
+
+        @Override
+        public void cancel() {
+            canceled = true;
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return canceled;
+        }
+
+        @Override
+        public Call<List<Shot>> clone() {
+            return new FakeCall(service);
+        }
+
+        @Override
+        public Request request() {
+            return new Request.Builder().url("https://dribbble.com/search").build();
+        }
+    }
+
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.data.api.dribbble;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import io.plaidapp.data.api.dribbble.model.Shot;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.ResponseBody;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ConditionalDribbbleSearchServiceTest {
+
+    private static final String ETAG = "\"abc\"";
+    private static final String LAST_MODIFIED = "Wed, 12 Apr 2017 09:30:00 GMT";
+
+    private FakeSearchApi api;
+    private ConditionalDribbbleSearchService service;
+
+    @Before
+    public void setUp() {
+        api = new FakeSearchApi();
+        service = new ConditionalDribbbleSearchService(api);
+    }
+
+    @Test
+    public void firstRequestIsUnconditional() throws IOException {
+        api.respond(ok(shots(1L, 2L), true));
+        final Response<List<Shot>> response = search();
+
+        assertNull(api.ifNoneMatch);
+        assertNull(api.ifModifiedSince);
+        assertEquals(Arrays.asList(1L, 2L), ids(response.body()));
+    }
+
+    @Test
+    public void revalidatesWithTheStoredValidators() throws IOException {
+        api.respond(ok(shots(1L, 2L), true));
+        search();
+        api.respond(notModified());
+        search();
+
+        assertEquals(ETAG, api.ifNoneMatch);
+        assertEquals(LAST_MODIFIED, api.ifModifiedSince);
+    }
+
+    @Test
+    public void notModifiedReturnsThePreviousResults() throws IOException {
+        api.respond(ok(shots(1L, 2L), true));
+        search();
+        api.respond(notModified());
+        final Response<List<Shot>> response = search();
+
+        assertTrue(response.isSuccessful());
+        assertEquals(Arrays.asList(1L, 2L), ids(response.body()));
+    }
+
+    @Test
+    public void notModifiedReturnsFreshCopies() throws IOException {
+        api.respond(ok(shots(1L, 2L), true));
+        final List<Shot> delivered = search().body();
+        // as a data manager does with the shots it receives
+        for (Shot shot : delivered) {
+            shot.page = 3;
+            shot.dataSource = "first";
+        }
+        api.respond(notModified());
+        final List<Shot> revalidated = search().body();
+        api.respond(notModified());
+        final List<Shot> revalidatedAgain = search().body();
+
+        for (int i = 0; i < delivered.size(); i++) {
+            assertNotSame(delivered.get(i), revalidated.get(i));
+            assertNotSame(revalidated.get(i), revalidatedAgain.get(i));
+            assertEquals(0, revalidated.get(i).page);
+            assertNull(revalidated.get(i).dataSource);
+        }
+    }
+
+    @Test
+    public void responsesWithoutValidatorsAreNotRevalidated() throws IOException {
+        api.respond(ok(shots(1L), true));
+        search();
+        api.respond(ok(shots(1L), false));
+        search();
+        api.respond(ok(shots(1L), true));
+        search();
+
+        assertNull(api.ifNoneMatch);
+        assertNull(api.ifModifiedSince);
+    }
+
+    @Test
+    public void differentPagesAreRevalidatedSeparately() throws IOException {
+        api.respond(ok(shots(1L), true));
+        search();
+        api.respond(ok(shots(2L), true));
+        service.search("material", 2, 12, "").execute();
+
+        assertNull(api.ifNoneMatch);
+    }
+
+    private Response<List<Shot>> search() throws IOException {
+        return service.search("material", 1, 12, "").execute();
+    }
+
+    private static Response<List<Shot>> ok(List<Shot> shots, boolean validators) {
+        final okhttp3.Response.Builder raw = raw(200);
+        if (validators) {
+            raw.header("ETag", ETAG).header("Last-Modified", LAST_MODIFIED);
+        }
+        return Response.success(shots, raw.build());
+    }
+
+    private static Response<List<Shot>> notModified() {
+        return Response.error(ResponseBody.create(null, ""), raw(304).build());
+    }
+
+    private static okhttp3.Response.Builder raw(int code) {
+        return new okhttp3.Response.Builder()
+                .code(code)
+                .message("")
+                .protocol(Protocol.HTTP_1_1)
+                .request(new Request.Builder().url("https://dribbble.com/search").build());
+    }
+
+    private static List<Shot> shots(long... ids) {
+        final List<Shot> shots = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            shots.add(new Shot.Builder().setId(id).setTitle("Shot " + id).build());
+        }
+        return shots;
+    }
+
+    private static List<Long> ids(List<Shot> shots) {
+        final List<Long> ids = new ArrayList<>(shots.size());
+        for (Shot shot : shots) {
+            ids.add(shot.id);
+        }
+        return ids;
+    }
+
+    /**
+     * Records the conditional headers of the latest search and answers with a preset response.
+     */
+    private static class FakeSearchApi
+            implements ConditionalDribbbleSearchService.ConditionalSearchApi {
+
+        private Response<List<Shot>> response;
+        String ifNoneMatch;
+        String ifModifiedSince;
+
+        void respond(Response<List<Shot>> response) {
+            this.response = response;
+        }
+
+        @Override
+        public Call<List<Shot>> search(String query, Integer page, Integer pageSize, String sort,
+                                       String ifNoneMatch, String ifModifiedSince) {
+            this.ifNoneMatch = ifNoneMatch;
+            this.ifModifiedSince = ifModifiedSince;
+            return new FakeCall(response);
+        }
+    }
+
+    private static class FakeCall implements Call<List<Shot>> {
+
+        private final Response<List<Shot>> response;
+        private boolean executed;
+
+        FakeCall(Response<List<Shot>> response) {
+            this.response = response;
+        }
+
+        @Override
+        public Response<List<Shot>> execute() throws IOException {
+            executed = true;
+            return response;
+        }
+
+        @Override
+        public void enqueue(Callback<List<Shot>> callback) {
+            executed = true;
+            callback.onResponse(this, response);
+        }
+
+        @Override
+        public boolean isExecuted() {
+            return executed;
+        }
+
+        @Override
+        public void cancel() { }
+
+        @Override
+        public boolean isCanceled() {
+            return false;
+        }
+
+        @Override
+        public Call<List<Shot>> clone() {
+            return new FakeCall(response);
+        }
+
+        @Override
+        public Request request() {
+            return response.raw().request();
+        }
+    }
+
+}
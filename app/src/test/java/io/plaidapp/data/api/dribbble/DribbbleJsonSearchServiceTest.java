@@ -0,0 +1,92 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.data.api.dribbble;
+
+import com.google.gson.GsonBuilder;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import io.plaidapp.data.api.DenvelopingConverter;
+import io.plaidapp.data.api.dribbble.model.Shot;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import retrofit2.Retrofit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class DribbbleJsonSearchServiceTest {
+
+    private final MockWebServer server = new MockWebServer();
+    private DribbbleSearchService service;
+
+    @Before
+    public void setUp() throws IOException {
+        server.start();
+        final Retrofit retrofit = new Retrofit.Builder()
+                .baseUrl(server.url("/"))
+                .addConverterFactory(new DenvelopingConverter(
+                        ShotTypeAdapter.register(new GsonBuilder()).create()))
+                .build();
+        service = new DribbbleJsonSearchService.Adapter(
+                retrofit.create(DribbbleJsonSearchService.class));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void readsShotsFromTheirEnvelope() throws Exception {
+        server.enqueue(new MockResponse().setBody("{"
+                + "\"meta\": {\"page\": 2, \"shots\": [{\"id\": 99}]},"
+                + "\"shots\": ["
+                + "{\"id\": 3400050, \"title\": \"Weather concept\"},"
+                + "{\"id\": 3400175, \"title\": \"Music player\"}"
+                + "],"
+                + "\"next\": \"/search?page=3\""
+                + "}"));
+
+        final List<Shot> shots = service.search("material", 2, 12,
+                DribbbleSearchService.SORT_RECENT).execute().body();
+
+        assertEquals(2, shots.size());
+        assertEquals(3400050L, shots.get(0).id);
+        assertEquals("Weather concept", shots.get(0).title);
+        assertEquals(3400175L, shots.get(1).id);
+        final RecordedRequest request = server.takeRequest();
+        assertEquals("/search?q=material&page=2&per_page=12&s="
+                + DribbbleSearchService.SORT_RECENT, request.getPath());
+    }
+
+    @Test
+    public void readsAnEmptyEnvelope() throws Exception {
+        server.enqueue(new MockResponse().setBody("{\"shots\": []}"));
+        assertEquals(0, service.search("material", 1, 12, "").execute().body().size());
+
+        server.enqueue(new MockResponse().setBody("{\"meta\": {}}"));
+        assertNull(service.search("material", 1, 12, "").execute().body());
+    }
+
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.data.api.dribbble;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import io.plaidapp.data.api.dribbble.model.Shot;
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class DribbbleSearchConverterTest {
+
+    private static final MediaType HTML = MediaType.parse("text/html; charset=utf-8");
+
+    @Test
+    public void repeatedElementsSkipTheFragmentParse() throws IOException {
+        for (boolean parallel : new boolean[] { false, true }) {
+            final ShotParseCache cache =
+                    new ShotParseCache(DribbbleSearchConverter.PARSE_CACHE_SIZE);
+            final CountingConverter converter = new CountingConverter(parallel, cache);
+
+            final List<Shot> first = converter.convert(page("typical"));
+            assertTrue(first.size() > 0);
+            assertEquals(first.size(), converter.elementsParsed);
+            assertEquals(first.size(), cache.getMissCount());
+
+            final List<Shot> second = converter.convert(page("typical"));
+            assertEquals(ids(first), ids(second));
+            assertEquals(first.size(), converter.elementsParsed);
+            assertEquals(first.size(), cache.getHitCount());
+            assertEquals(first.size(), cache.getMissCount());
+        }
+    }
+
+    @Test
+    public void repeatedElementsAreDeliveredAsCopies() throws IOException {
+        final DribbbleSearchConverter converter = new DribbbleSearchConverter(false,
+                new ShotParseCache(DribbbleSearchConverter.PARSE_CACHE_SIZE));
+        final List<Shot> first = converter.convert(page("small"));
+        for (Shot shot : first) {
+            shot.page = 3;
+            shot.dataSource = "first";
+            shot.weight = 0.5f;
+        }
+
+        final List<Shot> second = converter.convert(page("small"));
+        for (int i = 0; i < second.size(); i++) {
+            assertNotSame(first.get(i), second.get(i));
+            assertEquals(0, second.get(i).page);
+            assertNull(second.get(i).dataSource);
+            assertEquals(0f, second.get(i).weight, 0f);
+        }
+    }
+
+    private static ResponseBody page(String fixture) throws IOException {
+        return ResponseBody.create(HTML, ReplayServer.readFixture(fixture).readUtf8());
+    }
+
+    private static List<Long> ids(List<Shot> shots) {
+        final List<Long> ids = new ArrayList<>(shots.size());
+        for (Shot shot : shots) {
+            ids.add(shot.id);
+        }
+        return ids;
+    }
+
+    /**
+     * Counts the shot elements it actually parses, i.e. misses of the parse cache.
+     */
+    private static class CountingConverter extends DribbbleSearchConverter {
+
+        int elementsParsed = 0;
+
+        CountingConverter(boolean parallel, ShotParseCache cache) {
+            super(parallel, cache);
+        }
+
+        @Override
+        synchronized Shot parseElement(String html) {
+            elementsParsed++;
+            return super.parseElement(html);
+        }
+    }
+
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.data.api.dribbble;
+
+import java.io.Closeable;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import okhttp3.HttpUrl;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+
+/**
+ * Replays a recorded search results page (from {@code src/test/resources/search}) with
+ * configurable latency & bandwidth to model different networks.
+ * <p>
+ * Each distinct request (query, page, page size & sort) is served its own page: the recording
+ * with its shot ids renumbered, so that no two pages share markup, as with real results. Pages
+ * carry {@code ETag} & {@code Last-Modified} validators and don't change, so revalidating a page
+ * is answered with {@code 304 Not Modified}.
+ */
+class ReplayServer implements Closeable {
+
+    // throttled bodies are written in chunks at this interval
+    private static final long THROTTLE_PERIOD_MS = 50L;
+    // fixture shot ids have 7 digits; each page's ids are offset past those of the previous
+    private static final long ID_STRIDE = 10_000_000L;
+    private static final Pattern SHOT_ID =
+            Pattern.compile("(screenshot-|/shots/|/screenshots/)(\\d+)");
+    private static final String LAST_MODIFIED = "Wed, 12 Apr 2017 09:30:00 GMT";
+
+    private final MockWebServer server = new MockWebServer();
+    private final String recording;
+    private final long recordingSize;
+    private final ConcurrentMap<String, Page> pages = new ConcurrentHashMap<>();
+    private final AtomicInteger notModifiedCount = new AtomicInteger();
+    private volatile long latencyMs;
+    private volatile long bytesPerSecond;
+
+    /**
+     * @param fixture the name of the recorded page: {@code small}, {@code typical} or {@code huge}
+     */
+    ReplayServer(String fixture) throws IOException {
+        final Buffer buffer = readFixture(fixture);
+        recordingSize = buffer.size();
+        recording = buffer.readUtf8();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                final Page page = page(request.getPath());
+                if (latencyMs > 0L) {
+                    // a 304 has no body to delay, so model latency as the time to respond at all
+                    TimeUnit.MILLISECONDS.sleep(latencyMs);
+                }
+                if (page.isNotModified(request)) {
+                    notModifiedCount.incrementAndGet();
+                    return page.headers(new MockResponse().setResponseCode(304));
+                }
+                final MockResponse response = page.headers(new MockResponse())
+                        .setHeader("Content-Type", "text/html; charset=utf-8")
+                        .setBody(page.body.clone());
+                if (bytesPerSecond > 0L) {
+                    response.throttleBody(
+                            Math.max(1L, bytesPerSecond * THROTTLE_PERIOD_MS / 1000L),
+                            THROTTLE_PERIOD_MS, TimeUnit.MILLISECONDS);
+                }
+                return response;
+            }
+        });
+    }
+
+    static Buffer readFixture(String fixture) throws IOException {
+        final String path = "/search/" + fixture + ".html";
+        final InputStream in = ReplayServer.class.getResourceAsStream(path);
+        if (in == null) throw new FileNotFoundException(path);
+        try {
+            return new Buffer().readFrom(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    void setLatency(long latencyMs) {
+        this.latencyMs = latencyMs;
+    }
+
+    /**
+     * @param bytesPerSecond the bandwidth to serve at, or 0 for unlimited
+     */
+    void setBandwidth(long bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    long pageSize() {
+        return recordingSize;
+    }
+
+    void start() throws IOException {
+        server.start();
+    }
+
+    HttpUrl url() {
+        return server.url("/");
+    }
+
+    int requestCount() {
+        return server.getRequestCount();
+    }
+
+    /**
+     * @return the number of requests answered with {@code 304 Not Modified}
+     */
+    int notModifiedCount() {
+        return notModifiedCount.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.shutdown();
+    }
+
+    private Page page(String path) {
+        Page page = pages.get(path);
+        if (page == null) {
+            synchronized (pages) {
+                page = pages.get(path);
+                if (page == null) {
+                    page = new Page(renumber(pages.size() + 1), pages.size() + 1);
+                    pages.put(path, page);
+                }
+            }
+        }
+        return page;
+    }
+
+    private Buffer renumber(int variant) {
+        final Matcher matcher = SHOT_ID.matcher(recording);
+        final StringBuffer renumbered = new StringBuffer(recording.length() + 1024);
+        while (matcher.find()) {
+            final long id = Long.parseLong(matcher.group(2)) + variant * ID_STRIDE;
+            matcher.appendReplacement(renumbered, matcher.group(1) + id);
+        }
+        matcher.appendTail(renumbered);
+        return new Buffer().writeUtf8(renumbered.toString());
+    }
+
+    private static class Page {
+
+        final Buffer body;
+        final String etag;
+
+        Page(Buffer body, int variant) {
+            this.body = body;
+            etag = "\"" + variant + '-' + body.size() + "\"";
+        }
+
+        MockResponse headers(MockResponse response) {
+            return response
+                    .setHeader("ETag", etag)
+                    .setHeader("Last-Modified", LAST_MODIFIED);
+        }
+
+        boolean isNotModified(RecordedRequest request) {
+            final String ifNoneMatch = request.getHeader("If-None-Match");
+            if (ifNoneMatch != null) return ifNoneMatch.equals(etag);
+            return LAST_MODIFIED.equals(request.getHeader("If-Modified-Since"));
+        }
+    }
+
+}
@@ -0,0 +1,301 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.data.api.dribbble;
+
+import android.support.annotation.NonNull;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import io.plaidapp.data.api.dribbble.model.Shot;
+import okhttp3.OkHttpClient;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * End-to-end benchmark of the search pipeline, i.e. what {@code DataManager} &
+ * {@code SearchDataManager} drive: coalescing → conditional GET → OkHttp → streaming conversion
+ * (& parse cache), against recorded pages served by a {@link ReplayServer}.
+ * <p>
+ * Each run has several sources load a number of pages concurrently, one after another, then
+ * refresh their first page; as in the app, calls are enqueued and sources searching for the same
+ * query share requests. Reports pages per second, time-to-first-shot (when the first batch of a
+ * page is parsed) and how many requests were coalesced or revalidated.
+ * <p>
+ * Skipped unless the {@code bench.run} system property is set, so not part of the unit tests; run
+ * with {@code ./gradlew :app:testDebugUnitTest -Pbenchmarks --tests '*SearchPipelineBenchmark*'}
+ * (which sets it), tuned with system properties:
+ * <ul>
+ *     <li>{@code bench.sources}: concurrent sources (default 4)</li>
+ *     <li>{@code bench.queries}: distinct queries searched by the sources (default half of
+ *     them)</li>
+ *     <li>{@code bench.pages}: pages loaded per source before refreshing (default 5)</li>
+ *     <li>{@code bench.latencyMs}: latency before each response (default 100)</li>
+ *     <li>{@code bench.bytesPerSecond}: bandwidth per response, 0 for unlimited (default 0)</li>
+ *     <li>{@code bench.parallel}: parse large pages in parallel (default true)</li>
+ * </ul>
+ */
+public class SearchPipelineBenchmark {
+
+    private static final int SOURCES = Integer.getInteger("bench.sources", 4);
+    private static final int QUERIES =
+            Math.max(1, Math.min(SOURCES, Integer.getInteger("bench.queries", SOURCES / 2)));
+    private static final int PAGES = Integer.getInteger("bench.pages", 5);
+    private static final long LATENCY_MS = Long.getLong("bench.latencyMs", 100L);
+    private static final long BYTES_PER_SECOND = Long.getLong("bench.bytesPerSecond", 0L);
+    private static final boolean PARALLEL =
+            Boolean.parseBoolean(System.getProperty("bench.parallel", "true"));
+
+    private static final ShotBatches SHOT_BATCHES = new ShotBatches();
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(@NonNull Runnable command) {
+            command.run();
+        }
+    };
+
+    @BeforeClass
+    public static void onlyWhenAsked() {
+        // takes minutes against a throttled server
+        assumeTrue(Boolean.getBoolean("bench.run"));
+    }
+
+    @Test
+    public void smallPages() throws Exception {
+        run("small");
+    }
+
+    @Test
+    public void typicalPages() throws Exception {
+        run("typical");
+    }
+
+    @Test
+    public void hugePages() throws Exception {
+        run("huge");
+    }
+
+    private void run(String fixture) throws Exception {
+        final int expectedShots = countShots(fixture);
+        final ReplayServer server = new ReplayServer(fixture);
+        server.setLatency(LATENCY_MS);
+        server.setBandwidth(BYTES_PER_SECOND);
+        server.start();
+        try {
+            final DribbbleSearchService api = createApi(server);
+            final ShotParseCache parseCache = DribbbleSearchConverter.getParseCache();
+            final long parseHits = parseCache.getHitCount();
+            final long parseMisses = parseCache.getMissCount();
+            final CountDownLatch done = new CountDownLatch(SOURCES);
+            final List<SourceLoad> loads = new ArrayList<>(SOURCES);
+            final long start = System.nanoTime();
+            for (int source = 0; source < SOURCES; source++) {
+                final SourceLoad load =
+                        new SourceLoad(api, "query-" + source % QUERIES, expectedShots, done);
+                loads.add(load);
+                load.loadNext();
+            }
+            assertTrue(done.await(5, TimeUnit.MINUTES));
+            final long elapsedNanos = System.nanoTime() - start;
+
+            final List<PageTiming> timings = new ArrayList<>(SOURCES * (PAGES + 1));
+            for (SourceLoad load : loads) {
+                if (load.failure != null) throw new AssertionError(load.failure);
+                timings.addAll(load.timings);
+            }
+            assertEquals(SOURCES * (PAGES + 1), timings.size());
+            // requests for the same page are either coalesced or revalidated, never repeated
+            assertTrue(server.requestCount() <= SOURCES * (PAGES + 1));
+            report(fixture, server, expectedShots, timings, elapsedNanos,
+                    parseCache.getHitCount() - parseHits, parseCache.getMissCount() - parseMisses);
+        } finally {
+            server.close();
+        }
+    }
+
+    private static DribbbleSearchService createApi(ReplayServer server) {
+        final OkHttpClient client = new OkHttpClient.Builder()
+                .addInterceptor(SHOT_BATCHES.interceptor())
+                .build();
+        final Retrofit retrofit = new Retrofit.Builder()
+                .baseUrl(server.url())
+                .client(client)
+                .callbackExecutor(DIRECT)
+                .addConverterFactory(new DribbbleSearchConverter.Factory(PARALLEL))
+                .build();
+        return new CoalescingDribbbleSearchService(new ConditionalDribbbleSearchService(
+                retrofit.create(ConditionalDribbbleSearchService.ConditionalSearchApi.class)),
+                DIRECT);
+    }
+
+    private static void report(String fixture,
+                               ReplayServer server,
+                               int shotsPerPage,
+                               List<PageTiming> timings,
+                               long elapsedNanos,
+                               long parseHits,
+                               long parseMisses) {
+        final List<Long> firstShot = new ArrayList<>(timings.size());
+        final List<Long> complete = new ArrayList<>(timings.size());
+        final List<Long> refresh = new ArrayList<>(SOURCES);
+        for (PageTiming timing : timings) {
+            if (timing.firstShotNanos != 0L) {
+                firstShot.add(timing.firstShotNanos - timing.startNanos);
+            }
+            (timing.refresh ? refresh : complete).add(timing.endNanos - timing.startNanos);
+        }
+        Collections.sort(firstShot);
+        Collections.sort(complete);
+        Collections.sort(refresh);
+        System.out.println(String.format(Locale.US,
+                "%s (%d bytes, %d shots): %d sources (%d queries) x %d pages, latency %dms, %s,"
+                        + " %s parse%n"
+                        + "  pages/s %.1f%n"
+                        + "  requests %d (%d not modified), coalesced %d%n"
+                        + "  parse cache hits %d misses %d%n"
+                        + "  time to first shot ms p50 %.1f p95 %.1f%n"
+                        + "  time to page ms       p50 %.1f p95 %.1f%n"
+                        + "  time to refresh ms    p50 %.1f p95 %.1f",
+                fixture, server.pageSize(), shotsPerPage, SOURCES, QUERIES, PAGES, LATENCY_MS,
+                BYTES_PER_SECOND > 0 ? BYTES_PER_SECOND + " B/s" : "unlimited bandwidth",
+                PARALLEL ? "parallel" : "sequential",
+                timings.size() / (elapsedNanos / 1e9),
+                server.requestCount(), server.notModifiedCount(),
+                timings.size() - server.requestCount(),
+                parseHits, parseMisses,
+                percentileMillis(firstShot, 0.5), percentileMillis(firstShot, 0.95),
+                percentileMillis(complete, 0.5), percentileMillis(complete, 0.95),
+                percentileMillis(refresh, 0.5), percentileMillis(refresh, 0.95)));
+    }
+
+    private static double percentileMillis(List<Long> sortedNanos, double percentile) {
+        if (sortedNanos.isEmpty()) return Double.NaN;
+        final int index = (int) Math.ceil(percentile * sortedNanos.size()) - 1;
+        return sortedNanos.get(Math.max(0, index)) / 1e6;
+    }
+
+    private static int countShots(String fixture) throws IOException {
+        final String page = ReplayServer.readFixture(fixture).readUtf8();
+        int count = 0;
+        for (int i = page.indexOf("id=\"screenshot-"); i != -1;
+             i = page.indexOf("id=\"screenshot-", i + 1)) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Loads a source's pages one after another, enqueueing each once the previous arrives, then
+     * refreshes its first page.
+     */
+    private static class SourceLoad implements Callback<List<Shot>> {
+
+        final DribbbleSearchService api;
+        final String query;
+        final int expectedShots;
+        final CountDownLatch done;
+        final List<PageTiming> timings = new ArrayList<>(PAGES + 1);
+        Throwable failure;
+        private PageTiming current;
+        private ShotBatches.Registration batches;
+
+        SourceLoad(DribbbleSearchService api,
+                   String query,
+                   int expectedShots,
+                   CountDownLatch done) {
+            this.api = api;
+            this.query = query;
+            this.expectedShots = expectedShots;
+            this.done = done;
+        }
+
+        void loadNext() {
+            final boolean refresh = timings.size() == PAGES;
+            final int page = refresh ? 1 : timings.size() + 1;
+            final PageTiming timing = new PageTiming(refresh);
+            batches = SHOT_BATCHES.register(query, page,
+                    DribbbleSearchService.PER_PAGE_DEFAULT, DribbbleSearchService.SORT_RECENT,
+                    new ShotBatches.Listener() {
+                        @Override
+                        public void onShotsParsed(@NonNull List<Shot> shots, int offset) {
+                            if (timing.firstShotNanos == 0L) {
+                                timing.firstShotNanos = System.nanoTime();
+                            }
+                        }
+                    }, DIRECT);
+            current = timing;
+            timing.startNanos = System.nanoTime();
+            api.search(query, page, DribbbleSearchService.PER_PAGE_DEFAULT,
+                    DribbbleSearchService.SORT_RECENT).enqueue(this);
+        }
+
+        @Override
+        public void onResponse(Call<List<Shot>> call, Response<List<Shot>> response) {
+            current.endNanos = System.nanoTime();
+            batches.unregister();
+            if (!response.isSuccessful() || response.body().size() != expectedShots) {
+                fail(new AssertionError(query + ": unexpected response " + response));
+                return;
+            }
+            timings.add(current);
+            if (timings.size() <= PAGES) {
+                loadNext();
+            } else {
+                done.countDown();
+            }
+        }
+
+        @Override
+        public void onFailure(Call<List<Shot>> call, Throwable t) {
+            batches.unregister();
+            fail(t);
+        }
+
+        private void fail(Throwable t) {
+            failure = t;
+            done.countDown();
+        }
+    }
+
+    private static class PageTiming {
+
+        final boolean refresh;
+        long startNanos;
+        volatile long firstShotNanos;
+        long endNanos;
+
+        PageTiming(boolean refresh) {
+            this.refresh = refresh;
+        }
+    }
+
+}
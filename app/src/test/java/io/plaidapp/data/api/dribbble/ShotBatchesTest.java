@@ -0,0 +1,187 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.data.api.dribbble;
+
+import android.support.annotation.NonNull;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import io.plaidapp.data.api.dribbble.model.Shot;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ShotBatchesTest {
+
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(@NonNull Runnable command) {
+            command.run();
+        }
+    };
+
+    private final MockWebServer server = new MockWebServer();
+    private ShotBatches batches;
+    private DribbbleSearchService service;
+
+    @Before
+    public void setUp() throws IOException {
+        server.start();
+        batches = new ShotBatches();
+        final Retrofit retrofit = new Retrofit.Builder()
+                .baseUrl(server.url("/"))
+                .client(new OkHttpClient.Builder()
+                        .addInterceptor(batches.interceptor())
+                        .build())
+                .callbackExecutor(DIRECT)
+                .addConverterFactory(new DribbbleSearchConverter.Factory())
+                .build();
+        service = new ConditionalDribbbleSearchService(
+                retrofit.create(ConditionalDribbbleSearchService.ConditionalSearchApi.class));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void deliversThePageInBatches() throws IOException {
+        final RecordingListener listener = listen(1);
+        server.enqueue(page("typical"));
+
+        final List<Shot> shots = search(1).body();
+        assertTrue(listener.offsets.size() > 1);
+        assertEquals(0, (int) listener.offsets.get(0));
+        assertEquals(4, (int) listener.offsets.get(1));
+        assertEquals(ids(shots), ids(listener.shots));
+    }
+
+    @Test
+    public void eachListenerReceivesItsOwnCopies() throws IOException {
+        final RecordingListener first = listen(1);
+        final RecordingListener second = listen(1);
+        server.enqueue(page("small"));
+
+        final List<Shot> shots = search(1).body();
+        assertEquals(ids(shots), ids(first.shots));
+        assertEquals(ids(shots), ids(second.shots));
+        for (int i = 0; i < shots.size(); i++) {
+            assertNotSame(shots.get(i), first.shots.get(i));
+            assertNotSame(shots.get(i), second.shots.get(i));
+            assertNotSame(first.shots.get(i), second.shots.get(i));
+        }
+        // as listeners modify the shots they receive
+        first.shots.get(0).page = 3;
+        first.shots.get(0).dataSource = "first";
+        assertEquals(0, second.shots.get(0).page);
+        assertNull(second.shots.get(0).dataSource);
+        assertEquals(0, shots.get(0).page);
+    }
+
+    @Test
+    public void notModifiedPagesLeaveNothingForTheNextResponse() throws IOException {
+        final RecordingListener listener = listen(1);
+        server.enqueue(page("small").setHeader("ETag", "\"v1\""));
+        final List<Shot> shots = search(1).body();
+        assertNull(ShotBatches.reading());
+        listener.shots.clear();
+
+        // the 304's body is never converted; the cached page is delivered instead
+        server.enqueue(new MockResponse().setResponseCode(304));
+        final Response<List<Shot>> revalidated = search(1);
+        assertTrue(revalidated.isSuccessful());
+        assertEquals(ids(shots), ids(revalidated.body()));
+        assertTrue(listener.shots.isEmpty());
+        assertNull(ShotBatches.reading());
+    }
+
+    @Test
+    public void failedResponsesLeaveNothingForTheNextResponse() throws IOException {
+        final RecordingListener listener = listen(1);
+        server.enqueue(new MockResponse().setResponseCode(500).setBody("<html></html>"));
+        assertFalse(search(1).isSuccessful());
+        assertTrue(listener.shots.isEmpty());
+        assertNull(ShotBatches.reading());
+    }
+
+    @Test
+    public void onlyListenersOfTheSearchAreCalled() throws IOException {
+        final RecordingListener otherPage = listen(2);
+        final RecordingListener unregistered = new RecordingListener();
+        batches.register("material", 1, DribbbleSearchService.PER_PAGE_DEFAULT,
+                DribbbleSearchService.SORT_RECENT, unregistered, DIRECT).unregister();
+        server.enqueue(page("small"));
+
+        assertEquals(4, search(1).body().size());
+        assertTrue(otherPage.shots.isEmpty());
+        assertTrue(unregistered.shots.isEmpty());
+    }
+
+    private RecordingListener listen(int page) {
+        final RecordingListener listener = new RecordingListener();
+        batches.register("material", page, DribbbleSearchService.PER_PAGE_DEFAULT,
+                DribbbleSearchService.SORT_RECENT, listener, DIRECT);
+        return listener;
+    }
+
+    private Response<List<Shot>> search(int page) throws IOException {
+        return service.search("material", page, DribbbleSearchService.PER_PAGE_DEFAULT,
+                DribbbleSearchService.SORT_RECENT).execute();
+    }
+
+    private static MockResponse page(String fixture) throws IOException {
+        return new MockResponse().setBody(ReplayServer.readFixture(fixture));
+    }
+
+    private static List<Long> ids(List<Shot> shots) {
+        final List<Long> ids = new ArrayList<>(shots.size());
+        for (Shot shot : shots) {
+            ids.add(shot.id);
+        }
+        return ids;
+    }
+
+    private static class RecordingListener implements ShotBatches.Listener {
+
+        final List<Shot> shots = new ArrayList<>();
+        final List<Integer> offsets = new ArrayList<>();
+
+        @Override
+        public void onShotsParsed(@NonNull List<Shot> shots, int offset) {
+            assertEquals(this.shots.size(), offset);
+            this.shots.addAll(shots);
+            offsets.add(offset);
+        }
+    }
+
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.data.api.dribbble;
+
+import org.jsoup.nodes.Element;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ShotElementReaderTest {
+
+    private static final String HOST = "https://dribbble.com";
+
+    @Test
+    public void readsEveryShotOfARecordedPage() throws IOException {
+        final List<String> ids = ids(reader(ReplayServer.readFixture("small")));
+        assertEquals(Arrays.asList("screenshot-3400050", "screenshot-3400175",
+                "screenshot-3400300", "screenshot-3400456"), ids);
+    }
+
+    @Test
+    public void readsTheSameShotsWhenThePageArrivesInSmallReads() throws IOException {
+        for (String fixture : Arrays.asList("small", "typical")) {
+            final List<String> whole = ids(reader(ReplayServer.readFixture(fixture)));
+            final List<String> trickled = ids(new ShotElementReader(
+                    trickle(ReplayServer.readFixture(fixture), 7), HOST));
+            assertEquals(whole, trickled);
+        }
+    }
+
+    @Test
+    public void keepsListItemsNestedInAShot() throws IOException {
+        final Element shot = reader(ReplayServer.readFixture("small")).next();
+        assertEquals("li", shot.tagName());
+        assertEquals(1, shot.select("li.fav").size());
+        assertEquals(1, shot.select("li.cmnt").size());
+        assertEquals(1, shot.select("li.views").size());
+    }
+
+    @Test
+    public void skipsOtherListItemsAndSimilarTags() throws IOException {
+        final ShotElementReader reader = reader(new Buffer().writeUtf8(
+                "<link rel=\"stylesheet\" href=\"/style.css\" />"
+                        + "<ul><li class=\"nav\"><a href=\"/\">Home</a></li></ul>"
+                        + "<ol><li id=\"screenshot-1\"><strong>One</strong></li>"
+                        + "<li\nid=\"screenshot-2\"><ul><li>nested</li></ul></li></ol>"));
+
+        assertEquals("screenshot-1", reader.next().id());
+        final Element second = reader.next();
+        assertEquals("screenshot-2", second.id());
+        assertEquals("nested", second.select("li li").text());
+        assertNull(reader.next());
+    }
+
+    @Test
+    public void truncatedShotEndsThePage() throws IOException {
+        final ShotElementReader reader = reader(new Buffer().writeUtf8(
+                "<ul><li id=\"screenshot-1\"><strong>One</strong></li>"
+                        + "<li id=\"screenshot-2\"><strong>Tw"));
+
+        assertEquals("screenshot-1", reader.next().id());
+        assertNull(reader.next());
+    }
+
+    @Test
+    public void emptyPageHasNoShots() throws IOException {
+        assertNull(reader(new Buffer()).next());
+        assertNull(reader(new Buffer().writeUtf8("<html><body>No results</body></html>"))
+                .next());
+    }
+
+    @Test
+    public void parsesCapturedMarkupOnItsOwn() throws IOException {
+        final String html = reader(ReplayServer.readFixture("small")).nextHtml();
+        final Element shot = ShotElementReader.parse(html, HOST);
+        assertEquals("screenshot-3400050", shot.id());
+        assertEquals(HOST + "/shots/3400050-Minimal-concept-onboarding",
+                shot.select("a.dribbble-link").first().absUrl("href"));
+    }
+
+    private static ShotElementReader reader(Buffer page) {
+        return new ShotElementReader(page, HOST);
+    }
+
+    private static List<String> ids(ShotElementReader reader) throws IOException {
+        final List<String> ids = new ArrayList<>();
+        for (Element shot = reader.next(); shot != null; shot = reader.next()) {
+            ids.add(shot.id());
+        }
+        return ids;
+    }
+
+    /**
+     * A source returning at most {@code maxBytes} per read, as a slow network might.
+     */
+    private static BufferedSource trickle(Buffer page, final long maxBytes) {
+        return Okio.buffer(new ForwardingSource(page) {
+            @Override
+            public long read(Buffer sink, long byteCount) throws IOException {
+                return super.read(sink, Math.min(byteCount, maxBytes));
+            }
+        });
+    }
+
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.data.api.dribbble;
+
+import org.jsoup.nodes.Element;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import io.plaidapp.data.api.dribbble.model.Shot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ShotExtractorTest {
+
+    private static final String HOST = "https://dribbble.com";
+
+    private final ShotExtractor extractor = new ShotExtractor(HOST);
+
+    @Test
+    public void extractsEveryFieldOfARecordedShot() throws Exception {
+        final Shot shot = extractor.extract(
+                new ShotElementReader(ReplayServer.readFixture("small"), HOST).next());
+
+        assertEquals(3400050L, shot.id);
+        assertEquals("Minimal concept onboarding", shot.title);
+        assertEquals(HOST + "/shots/3400050-Minimal-concept-onboarding", shot.html_url);
+        assertEquals("<p>exploration concept icon checkout mobile icon landing</p>",
+                shot.description);
+        // the full size image rather than the teaser
+        assertEquals("https://cdn.dribbble.com/users/760638/screenshots/3400050/"
+                + "minimal-concept-onbo.jpg", shot.images.normal);
+        assertFalse(shot.animated);
+        assertEquals(ShotFieldDecoder.parseDate("April 23, 2017"), shot.getCreatedAtMillis());
+        assertEquals(4512L, shot.likes_count);
+        assertEquals(151L, shot.comments_count);
+        assertEquals(28477L, shot.views_count);
+    }
+
+    @Test
+    public void gifIndicatorMarksShotAnimated() throws Exception {
+        final ShotElementReader reader =
+                new ShotElementReader(ReplayServer.readFixture("small"), HOST);
+        reader.next();
+        final Shot shot = extractor.extract(reader.next());
+
+        assertEquals(3400175L, shot.id);
+        assertTrue(shot.animated);
+    }
+
+    @Test
+    public void optionalFieldsMayBeMissing() throws Exception {
+        final Shot shot = extractor.extract(shot(title(), counts("1", "2", "3")));
+
+        assertEquals("", shot.description);
+        assertEquals(Shot.NO_DATE, shot.getCreatedAtMillis());
+        assertFalse(shot.animated);
+    }
+
+    @Test
+    public void unreadableDateIsIgnored() throws Exception {
+        final Shot shot = extractor.extract(shot(
+                "<a class=\"dribbble-over\" href=\"/shots/1-One\"><strong>One</strong>"
+                        + "<em class=\"timestamp\">Yesterday</em></a>",
+                counts("1", "2", "3")));
+
+        assertEquals(Shot.NO_DATE, shot.getCreatedAtMillis());
+    }
+
+    @Test
+    public void titleOutsideTheDescriptionBlockIsNotUsed() throws IOException {
+        assertMarkupException("title", shot(
+                "<strong>Not a title</strong><a class=\"dribbble-over\" href=\"/shots/1\"></a>",
+                counts("1", "2", "3")));
+    }
+
+    @Test
+    public void missingRequiredFieldsAreReported() throws IOException {
+        assertMarkupException("title", shot("", counts("1", "2", "3")));
+        assertMarkupException("likes_count", shot(title(), "<li class=\"cmnt\"><a>2</a></li>"
+                + "<li class=\"views\"><span>3</span></li>"));
+        assertMarkupException("views_count", shot(title(), "<li class=\"fav\"><a>1</a></li>"
+                + "<li class=\"cmnt\"><a>2</a></li><li class=\"views\"></li>"));
+    }
+
+    @Test
+    public void unreadableCountsAreReported() throws IOException {
+        assertMarkupException("comments_count", shot(title(), counts("1", "lots", "3")));
+        assertMarkupException("likes_count",
+                shot(title(), counts("99,999,999,999,999,999,999", "2", "3")));
+    }
+
+    private void assertMarkupException(String field, Element shot) {
+        try {
+            extractor.extract(shot);
+            fail("Expected the " + field + " of " + shot.id() + " to be reported");
+        } catch (ShotExtractor.MarkupException e) {
+            assertEquals(field, e.field);
+        }
+    }
+
+    private static Element shot(String description, String counts) {
+        return ShotElementReader.parse("<ul><li id=\"screenshot-1\">"
+                + "<a class=\"dribbble-link\" href=\"/shots/1-One\">"
+                + "<img src=\"https://cdn.dribbble.com/1_teaser.png\" /></a>"
+                + description
+                + "<ul class=\"tools\">" + counts + "</ul></li></ul>", HOST);
+    }
+
+    private static String title() {
+        return "<a class=\"dribbble-over\" href=\"/shots/1-One\"><strong>One</strong></a>";
+    }
+
+    private static String counts(String likes, String comments, String views) {
+        return "<li class=\"fav\"><a>" + likes + "</a></li>"
+                + "<li class=\"cmnt\"><a>" + comments + "</a></li>"
+                + "<li class=\"views\"><span>" + views + "</span></li>";
+    }
+
+}
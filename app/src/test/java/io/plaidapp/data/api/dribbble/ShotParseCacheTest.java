@@ -0,0 +1,104 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.data.api.dribbble;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import io.plaidapp.data.api.dribbble.model.Shot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+public class ShotParseCacheTest {
+
+    private ShotParseCache cache;
+
+    @Before
+    public void setUp() {
+        cache = new ShotParseCache(DribbbleSearchConverter.PARSE_CACHE_SIZE);
+    }
+
+    @Test
+    public void digestsMarkup() {
+        assertEquals(ShotParseCache.digest("<li id=\"screenshot-1\"></li>"),
+                ShotParseCache.digest(new StringBuilder("<li id=\"screenshot-1\"></li>")));
+        assertNotEquals(ShotParseCache.digest("<li id=\"screenshot-1\"></li>"),
+                ShotParseCache.digest("<li id=\"screenshot-2\"></li>"));
+        // both bytes of each char count
+        assertNotEquals(ShotParseCache.digest("\u0141"), ShotParseCache.digest("A"));
+    }
+
+    @Test
+    public void hitsReturnCopies() {
+        final Shot shot = shot(1L);
+        cache.put(1L, shot);
+        // callers mutate the shots they receive...
+        shot.page = 2;
+        final Shot first = cache.get(1L);
+        first.page = 3;
+        first.dataSource = "first";
+        first.weight = 0.5f;
+
+        // ...which must not reach the cache or other callers
+        final Shot second = cache.get(1L);
+        assertNotSame(shot, first);
+        assertNotSame(first, second);
+        assertEquals(1L, second.id);
+        assertEquals("Shot 1", second.title);
+        assertEquals(0, second.page);
+        assertNull(second.dataSource);
+        assertEquals(0f, second.weight, 0f);
+    }
+
+    @Test
+    public void countsHitsAndMisses() {
+        assertNull(cache.get(1L));
+        cache.put(1L, shot(1L));
+        assertNotNull(cache.get(1L));
+        assertNotNull(cache.get(1L));
+        assertNull(cache.get(2L));
+
+        assertEquals(2L, cache.getHitCount());
+        assertEquals(2L, cache.getMissCount());
+    }
+
+    @Test
+    public void evictsTheLeastRecentlyUsedShotsAtItsBound() {
+        assertEquals(256, DribbbleSearchConverter.getParseCache().maxSize());
+        for (long digest = 0L; digest < 256L; digest++) {
+            cache.put(digest, shot(digest));
+        }
+        assertEquals(256, cache.size());
+        // using the oldest entry keeps it
+        assertNotNull(cache.get(0L));
+
+        cache.put(256L, shot(256L));
+        assertEquals(256, cache.size());
+        assertNull(cache.get(1L));
+        assertNotNull(cache.get(0L));
+        assertNotNull(cache.get(256L));
+    }
+
+    private static Shot shot(long id) {
+        return new Shot.Builder().setId(id).setTitle("Shot " + id).build();
+    }
+
+}
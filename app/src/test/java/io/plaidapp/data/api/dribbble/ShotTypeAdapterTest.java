@@ -0,0 +1,158 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.data.api.dribbble;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import io.plaidapp.data.api.dribbble.model.Images;
+import io.plaidapp.data.api.dribbble.model.Shot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ShotTypeAdapterTest {
+
+    private static final String IMAGE = "https://cdn.dribbble.com/users/1/screenshots/3400050/shot";
+
+    private final Gson gson = ShotTypeAdapter.register(new GsonBuilder()).create();
+
+    @Test
+    public void roundTripsAShot() {
+        final Shot shot = new Shot(3400050L, "Weather concept", "<p>Sunny</p>", 800L, 600L,
+                new Images(IMAGE + ".png", IMAGE + "_1x.png", IMAGE + "_teaser.png"),
+                28477L, 4512L, 151L, 2L, 3L, 9L, utc(2017, Calendar.MARCH, 7, 10, 15, 30),
+                utc(2017, Calendar.MARCH, 8, 0, 0, 0), "https://dribbble.com/shots/3400050",
+                true, Arrays.asList("material", "weather"));
+
+        final String json = gson.toJson(shot);
+        final Shot read = gson.fromJson(json, Shot.class);
+
+        assertEquals(shot.id, read.id);
+        assertEquals(shot.title, read.title);
+        assertEquals(shot.description, read.description);
+        assertEquals(shot.width, read.width);
+        assertEquals(shot.height, read.height);
+        assertEquals(shot.images.hidpi, read.images.hidpi);
+        assertEquals(shot.images.normal, read.images.normal);
+        assertEquals(shot.images.getTeaser(), read.images.getTeaser());
+        assertEquals(shot.views_count, read.views_count);
+        assertEquals(shot.likes_count, read.likes_count);
+        assertEquals(shot.comments_count, read.comments_count);
+        assertEquals(shot.attachments_count, read.attachments_count);
+        assertEquals(shot.rebounds_count, read.rebounds_count);
+        assertEquals(shot.buckets_count, read.buckets_count);
+        assertEquals(shot.getCreatedAtMillis(), read.getCreatedAtMillis());
+        assertEquals(shot.getUpdatedAtMillis(), read.getUpdatedAtMillis());
+        assertEquals(shot.html_url, read.html_url);
+        assertEquals(shot.url, read.url);
+        assertTrue(read.animated);
+        assertEquals(shot.tags, read.tags);
+        // the derived links are written as the API does
+        assertTrue(json.contains("\"likes_url\":\"" + shot.getLikesUrl() + "\""));
+        assertTrue(json.contains("\"created_at\":\"2017-03-07T10:15:30Z\""));
+    }
+
+    @Test
+    public void skipsUnknownAndNestedFields() {
+        final Shot shot = gson.fromJson("{"
+                + "\"user\": {\"id\": 1, \"name\": \"Designer\", \"links\": {\"web\": \"x\"},"
+                + " \"teams\": [{\"id\": 2, \"tags\": [\"a\", {\"b\": [3]}]}]},"
+                + "\"id\": 3400050,"
+                + "\"attachments_url\": \"https://api.dribbble.com/v1/shots/1/attachments\","
+                + "\"team\": null,"
+                + "\"low_profile\": false,"
+                + "\"images\": {\"normal\": \"" + IMAGE + "_1x.png\", \"sizes\": [1, 2],"
+                + " \"meta\": {\"hidpi\": \"nested\"}},"
+                + "\"title\": \"Weather concept\","
+                + "\"extra\": [[[]], {}],"
+                + "\"likes_count\": 4512"
+                + "}", Shot.class);
+
+        assertEquals(3400050L, shot.id);
+        assertEquals("Weather concept", shot.title);
+        assertEquals(4512L, shot.likes_count);
+        assertEquals(IMAGE + "_1x.png", shot.images.normal);
+        assertNull(shot.images.hidpi);
+        assertNull(shot.tags);
+    }
+
+    @Test
+    public void readsNullFields() {
+        final Shot shot = gson.fromJson("{\"id\": 1, \"title\": null, \"description\": null,"
+                + " \"width\": null, \"images\": null, \"views_count\": null,"
+                + " \"created_at\": null, \"updated_at\": null, \"html_url\": null,"
+                + " \"animated\": null, \"tags\": null}", Shot.class);
+
+        assertEquals(1L, shot.id);
+        assertNull(shot.title);
+        assertNull(shot.description);
+        assertEquals(0L, shot.width);
+        assertNull(shot.images);
+        assertEquals(0L, shot.views_count);
+        assertEquals(Shot.NO_DATE, shot.getCreatedAtMillis());
+        assertEquals(Shot.NO_DATE, shot.getUpdatedAtMillis());
+        assertNull(shot.html_url);
+        assertFalse(shot.animated);
+        assertNull(shot.tags);
+
+        final Images images = gson.fromJson(
+                "{\"hidpi\": null, \"normal\": \"n.png\", \"teaser\": null}", Images.class);
+        assertNull(images.hidpi);
+        assertEquals("n.png", images.normal);
+        assertNull(images.getTeaser());
+
+        assertNull(gson.fromJson("null", Shot.class));
+        assertEquals("null", gson.toJson(null, Shot.class));
+    }
+
+    @Test
+    public void readsTimestampsWithAnOffset() {
+        final Shot shot = gson.fromJson("{\"id\": 1,"
+                + " \"created_at\": \"2017-03-07T11:15:30+01:00\","
+                + " \"updated_at\": \"2017-03-06T23:15:30-11:00\"}", Shot.class);
+
+        final long expected = utc(2017, Calendar.MARCH, 7, 10, 15, 30);
+        assertEquals(expected, shot.getCreatedAtMillis());
+        assertEquals(expected, shot.getUpdatedAtMillis());
+    }
+
+    @Test
+    public void malformedTimestampsAreUnknown() {
+        final Shot shot = gson.fromJson("{\"id\": 1, \"created_at\": \"March 7, 2017\"}",
+                Shot.class);
+        assertEquals(Shot.NO_DATE, shot.getCreatedAtMillis());
+    }
+
+    private static long utc(int year, int month, int day, int hour, int minute, int second) {
+        final Calendar calendar = new GregorianCalendar(TimeZone.getTimeZone("UTC"), Locale.US);
+        calendar.clear();
+        calendar.set(year, month, day, hour, minute, second);
+        return calendar.getTimeInMillis();
+    }
+
+}
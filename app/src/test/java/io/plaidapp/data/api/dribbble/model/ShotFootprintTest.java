@@ -0,0 +1,102 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.data.api.dribbble.model;
+
+import org.junit.Test;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Checks the heap retained by shots, as held for the length of a session by the feed. Object
+ * counts are checked as, unlike sizes in bytes, they don't depend on the VM.
+ */
+public class ShotFootprintTest {
+
+    private static final int SHOTS = 100;
+    private static final List<String> TAGS = Arrays.asList("material", "mobile", "ui", "app");
+
+    @Test
+    public void scrapedShotHoldsOnlyItsFields() {
+        final Shot shot = scrapedShot(3400050L);
+        final GraphLayout layout = GraphLayout.parseInstance(shot);
+
+        // the shot & its images, plus title, description, url & image (each a string and its
+        // array); the url is shared with PlaidItem and the teaser is derived
+        assertSame(shot.url, shot.html_url);
+        assertEquals(2 + 4 * 2, layout.totalCount());
+    }
+
+    @Test
+    public void apiShotDerivesItsTeaser() {
+        final Shot shot = apiShot(3400050L, new ArrayList<>(TAGS));
+        assertEquals(shot.images.normal.replace("_1x.", "_teaser."), shot.images.getTeaser());
+        final GraphLayout layout = GraphLayout.parseInstance(shot.images);
+        // the images, plus the hidpi & normal images (each a string and its array)
+        assertEquals(1 + 2 * 2, layout.totalCount());
+    }
+
+    @Test
+    public void shotsShareTheirTags() {
+        final List<Shot> shots = new ArrayList<>(SHOTS);
+        for (int i = 0; i < SHOTS; i++) {
+            // each shot parses its own copies of the tags
+            final List<String> tags = new ArrayList<>(TAGS.size());
+            for (String tag : TAGS) {
+                tags.add(new String(tag));
+            }
+            shots.add(apiShot(3400000L + i, tags));
+        }
+        final GraphLayout layout = GraphLayout.parseInstance(shots);
+
+        // per shot: the shot & its images, 5 strings (with arrays) & its tag list (an
+        // unmodifiable list wrapping an array backed list); tags themselves are held once, as
+        // is the list of shots (with its array)
+        final long perShot = 2 + 5 * 2 + 3;
+        assertEquals(2 + SHOTS * perShot + TAGS.size() * 2, layout.totalCount());
+    }
+
+    private static Shot scrapedShot(long id) {
+        return new Shot.Builder()
+                .setId(id)
+                .setTitle("Minimal concept onboarding " + id)
+                .setDescription("<p>exploration concept icon checkout mobile " + id + "</p>")
+                .setHtmlUrl("https://dribbble.com/shots/" + id + "-Minimal-concept-onboarding")
+                .setImages(new Images(null, "https://cdn.dribbble.com/users/760638/screenshots/"
+                        + id + "/minimal-concept-onbo.jpg", null))
+                .setCreatedAt(1492905600000L)
+                .setLikesCount(4512L)
+                .setCommentsCount(151L)
+                .setViewsCount(28477L)
+                .build();
+    }
+
+    private static Shot apiShot(long id, List<String> tags) {
+        final String image = "https://cdn.dribbble.com/users/760638/screenshots/" + id + "/shot";
+        return new Shot(id, "Minimal concept onboarding " + id,
+                "<p>exploration concept icon checkout mobile " + id + "</p>", 800L, 600L,
+                new Images(image + ".png", image + "_1x.png", image + "_teaser.png"),
+                28477L, 4512L, 151L, 0L, 2L, 9L, 1492905600000L, 1492992000000L,
+                "https://dribbble.com/shots/" + id + "-Minimal-concept-onboarding", false, tags);
+    }
+
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.data.db;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+
+public class PageRetentionTest {
+
+    @Test
+    public void keepsTheMostRecentlyWrittenPages() {
+        final PageRetention retention = new PageRetention(3, Collections.<Integer>emptyList());
+
+        assertEquals(Collections.<Integer>emptyList(), retention.written(1));
+        assertEquals(Collections.<Integer>emptyList(), retention.written(2));
+        assertEquals(Collections.<Integer>emptyList(), retention.written(3));
+        assertEquals(Collections.singletonList(1), retention.written(4));
+        assertEquals(Collections.singletonList(2), retention.written(5));
+    }
+
+    @Test
+    public void rewritingAPageRefreshesIt() {
+        final PageRetention retention = new PageRetention(3, Collections.<Integer>emptyList());
+        retention.written(1);
+        retention.written(2);
+        retention.written(3);
+
+        // e.g. a refresh from the first page
+        assertEquals(Collections.<Integer>emptyList(), retention.written(1));
+        assertEquals(Collections.singletonList(2), retention.written(4));
+    }
+
+    @Test
+    public void evictsAlreadyStoredPagesOldestFirst() {
+        // e.g. pages left over from before the limit was lowered
+        final PageRetention retention = new PageRetention(2, Arrays.asList(7, 1, 2, 3));
+
+        assertEquals(Arrays.asList(7, 1, 2), retention.written(4));
+        assertEquals(Collections.singletonList(3), retention.written(5));
+    }
+
+    @Test
+    public void alwaysKeepsThePageJustWritten() {
+        final PageRetention retention = new PageRetention(0, Collections.singletonList(1));
+
+        assertEquals(Collections.singletonList(1), retention.written(2));
+        assertEquals(Collections.<Integer>emptyList(), retention.written(2));
+    }
+
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.ui;
+
+import android.support.annotation.NonNull;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SearchAsYouTypeTest {
+
+    private FakeSearch search;
+    private SearchAsYouType searchAsYouType;
+    private boolean posted;
+
+    @Before
+    public void setUp() {
+        search = new FakeSearch();
+        searchAsYouType = new SearchAsYouType(search) {
+            @Override
+            void postDelayed() {
+                posted = true;
+            }
+
+            @Override
+            void removeCallbacks() {
+                posted = false;
+            }
+        };
+    }
+
+    @Test
+    public void searchesOnceTheUserPauses() {
+        searchAsYouType.onQueryChanged("c");
+        searchAsYouType.onQueryChanged("ca");
+        searchAsYouType.onQueryChanged("cat");
+        assertEquals(Collections.<String>emptyList(), search.searches);
+
+        pause();
+        assertEquals(Collections.singletonList("cat"), search.searches);
+    }
+
+    @Test
+    public void keystrokeCancelsThePreviousGeneration() {
+        searchAsYouType.onQueryChanged("cat");
+        pause();
+        final int catGeneration = search.generation;
+
+        // before the debounce fires, so "cat" results can't arrive whilst typing "cats"
+        searchAsYouType.onQueryChanged("cats");
+        assertTrue(search.generation > catGeneration);
+        assertEquals("", search.query);
+        assertTrue(posted);
+
+        pause();
+        assertEquals(Arrays.asList("cat", "cats"), search.searches);
+    }
+
+    @Test
+    public void retypingTheCurrentQueryKeepsItsSearch() {
+        searchAsYouType.onQueryChanged("cat");
+        pause();
+        final int catGeneration = search.generation;
+
+        searchAsYouType.onQueryChanged("cat");
+        assertEquals(catGeneration, search.generation);
+        pause();
+        assertEquals(Collections.singletonList("cat"), search.searches);
+    }
+
+    @Test
+    public void cancelForgetsThePendingQuery() {
+        searchAsYouType.onQueryChanged("cat");
+        searchAsYouType.cancel();
+        assertFalse(posted);
+
+        searchAsYouType.run();
+        assertEquals(Collections.<String>emptyList(), search.searches);
+    }
+
+    private void pause() {
+        if (posted) {
+            posted = false;
+            searchAsYouType.run();
+        }
+    }
+
+    /**
+     * Behaves like {@link io.plaidapp.data.SearchDataManager}: searching for a new query or
+     * cancelling starts a new generation.
+     */
+    private static class FakeSearch implements SearchAsYouType.Search {
+
+        final List<String> searches = new ArrayList<>();
+        String query = "";
+        int generation = 0;
+
+        @NonNull
+        @Override
+        public String getQuery() {
+            return query;
+        }
+
+        @Override
+        public void cancel() {
+            query = "";
+            generation++;
+        }
+
+        @Override
+        public void search(@NonNull String query) {
+            cancel();
+            this.query = query;
+            searches.add(query);
+        }
+    }
+
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.ui.recyclerview;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class AppendUpdateBatcherTest {
+
+    private FakeTarget adapter;
+    private AppendUpdateBatcher batcher;
+    private int framesPosted;
+
+    @Before
+    public void setUp() {
+        adapter = new FakeTarget();
+        batcher = batcher(false);
+    }
+
+    @Test
+    public void contiguousAppendsAreNotifiedAsOneRange() {
+        adapter.append(3);
+        batcher.itemsAppended(0, 3);
+        adapter.append(2);
+        batcher.itemsAppended(3, 2);
+        assertEquals(Collections.emptyList(), adapter.notified);
+
+        batcher.doFrame(0L);
+        assertEquals(Arrays.asList("insert 0+5"), adapter.notified);
+    }
+
+    @Test
+    public void postsOneFrameCallbackPerFrame() {
+        adapter.append(1);
+        batcher.itemsAppended(0, 1);
+        adapter.append(1);
+        batcher.itemsAppended(1, 1);
+        batcher.footerChanged(true);
+        assertEquals(1, framesPosted);
+
+        batcher.doFrame(0L);
+        adapter.append(1);
+        batcher.itemsAppended(2, 1);
+        assertEquals(2, framesPosted);
+    }
+
+    @Test
+    public void discontiguousAppendFlushesThePendingRange() {
+        adapter.append(4);
+        batcher.itemsAppended(0, 2);
+        batcher.itemsAppended(3, 1);
+        assertEquals(Arrays.asList("insert 0+2"), adapter.notified);
+
+        batcher.doFrame(0L);
+        assertEquals(Arrays.asList("insert 0+2", "insert 3+1"), adapter.notified);
+    }
+
+    @Test
+    public void nothingIsNotifiedWithoutObservers() {
+        adapter.observed = false;
+        adapter.append(2);
+        batcher.itemsAppended(0, 2);
+        batcher.footerChanged(true);
+        batcher.flush();
+        assertEquals(Collections.emptyList(), adapter.notified);
+        assertEquals(0, framesPosted);
+
+        // an observer attaching later sees the footer so hiding it must be notified
+        adapter.observed = true;
+        adapter.footer = false;
+        batcher.footerChanged(false);
+        batcher.doFrame(0L);
+        assertEquals(Arrays.asList("remove 2"), adapter.notified);
+    }
+
+    @Test
+    public void footerShownAndHiddenWithinAFrameIsNotNotified() {
+        adapter.footer = true;
+        batcher.footerChanged(true);
+        adapter.footer = false;
+        batcher.footerChanged(false);
+
+        batcher.doFrame(0L);
+        assertEquals(Collections.emptyList(), adapter.notified);
+    }
+
+    @Test
+    public void footerFollowsTheAppendedItems() {
+        adapter.append(2);
+        batcher.itemsAppended(0, 2);
+        adapter.footer = true;
+        batcher.footerChanged(true);
+
+        batcher.doFrame(0L);
+        assertEquals(Arrays.asList("insert 0+2", "insert 2"), adapter.notified);
+
+        adapter.append(3);
+        batcher.itemsAppended(2, 3);
+        adapter.footer = false;
+        batcher.footerChanged(false);
+
+        batcher.doFrame(0L);
+        assertEquals(Arrays.asList("insert 0+2", "insert 2", "insert 2+3", "remove 5"),
+                adapter.notified);
+    }
+
+    @Test
+    public void flushNotifiesImmediately() {
+        adapter.footer = true;
+        batcher = batcher(true);
+        adapter.append(1);
+        batcher.itemsAppended(0, 1);
+        adapter.footer = false;
+        batcher.footerChanged(false);
+
+        batcher.flush();
+        assertEquals(Arrays.asList("insert 0+1", "remove 1"), adapter.notified);
+        // the frame which follows has nothing left to notify
+        batcher.doFrame(0L);
+        assertEquals(2, adapter.notified.size());
+    }
+
+    private AppendUpdateBatcher batcher(boolean footerShown) {
+        return new AppendUpdateBatcher(adapter, footerShown) {
+            @Override
+            void postFrameCallback() {
+                framesPosted++;
+            }
+        };
+    }
+
+    /**
+     * An adapter holding a number of items and an optional footer, which records notifications.
+     */
+    private static class FakeTarget implements AppendUpdateBatcher.Target {
+
+        final List<String> notified = new ArrayList<>();
+        boolean observed = true;
+        boolean footer = false;
+        private int items = 0;
+
+        void append(int count) {
+            items += count;
+        }
+
+        @Override
+        public boolean hasObservers() {
+            return observed;
+        }
+
+        @Override
+        public int getItemCount() {
+            return items + (footer ? 1 : 0);
+        }
+
+        @Override
+        public void notifyItemRangeInserted(int positionStart, int itemCount) {
+            notified.add("insert " + positionStart + "+" + itemCount);
+        }
+
+        @Override
+        public void notifyItemInserted(int position) {
+            notified.add("insert " + position);
+        }
+
+        @Override
+        public void notifyItemRemoved(int position) {
+            notified.add("remove " + position);
+        }
+    }
+
+}
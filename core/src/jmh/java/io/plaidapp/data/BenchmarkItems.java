@@ -0,0 +1,63 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates feed items for benchmarks.
+ */
+public class BenchmarkItems {
+
+    private BenchmarkItems() { }
+
+    /**
+     * A minimal {@link PlaidItem} with a count to weigh by.
+     */
+    public static class Item extends PlaidItem {
+
+        public final long likes;
+
+        public Item(long id, long likes, int page) {
+            super(id, "Item " + id, "https://example.com/" + id);
+            this.likes = likes;
+            this.page = page;
+        }
+    }
+
+    public static class LikesWeigher extends PlaidItemSorting.RelativeCountWeigher<Item> {
+
+        @Override
+        protected long getCount(Item item) {
+            return item.likes;
+        }
+    }
+
+    /**
+     * @param firstId the id of the first item; subsequent items have consecutive ids
+     */
+    public static List<Item> items(int count, long firstId, int itemsPerPage, Random random) {
+        final List<Item> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            items.add(new Item(firstId + i, random.nextInt(5000), 1 + i / itemsPerPage));
+        }
+        return items;
+    }
+
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.data;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * De-duplicating a newly loaded page against the items already in a feed, and finding an item's
+ * position within it: by scanning the feed versus through an {@link ItemIndex} of it.
+ */
+@State(Scope.Benchmark)
+public class DeduplicationBenchmark {
+
+    private static final int PAGE_SIZE = 12;
+
+    @Param({ "100", "1000", "10000" })
+    public int feedSize;
+
+    private List<PlaidItem> feed;
+    private ItemIndex feedIndex;
+    private List<BenchmarkItems.Item> page;
+    private long middleId;
+
+    @Setup
+    public void setUp() {
+        final Random random = new Random(42);
+        feed = new ArrayList<PlaidItem>(BenchmarkItems.items(feedSize, 1L, PAGE_SIZE, random));
+        // half of the page duplicates items at the end of the feed, as when feeds overlap
+        page = BenchmarkItems.items(PAGE_SIZE, feedSize - PAGE_SIZE / 2 + 1, PAGE_SIZE, random);
+        feedIndex = new ItemIndex();
+        feedIndex.rebuild(feed);
+        middleId = feed.get(feedSize / 2).id;
+    }
+
+    @Benchmark
+    public List<BenchmarkItems.Item> filterNew() {
+        return ItemDeduplicator.filterNew(feed, page);
+    }
+
+    @Benchmark
+    public List<BenchmarkItems.Item> filterNewIndexed() {
+        return ItemDeduplicator.filterNew(feed, feedIndex, page);
+    }
+
+    @Benchmark
+    public int positionOf() {
+        for (int position = 0; position < feed.size(); position++) {
+            if (feed.get(position).id == middleId) return position;
+        }
+        return ItemIndex.NO_POSITION;
+    }
+
+    @Benchmark
+    public int positionOfIndexed() {
+        return feedIndex.indexOf(middleId);
+    }
+
+    /**
+     * Build the whole feed a page at a time, as infinite scrolling does, de-duping each page.
+     */
+    @Benchmark
+    public int scrollToEnd() {
+        final List<PlaidItem> items = new ArrayList<>(feedSize);
+        for (int start = 0; start < feedSize; start += PAGE_SIZE) {
+            items.addAll(ItemDeduplicator.filterNew(items,
+                    feed.subList(start, Math.min(start + PAGE_SIZE, feedSize))));
+        }
+        return items.size();
+    }
+
+    @Benchmark
+    public int scrollToEndIndexed() {
+        final List<PlaidItem> items = new ArrayList<>(feedSize);
+        final ItemIndex index = new ItemIndex();
+        for (int start = 0; start < feedSize; start += PAGE_SIZE) {
+            for (PlaidItem item : ItemDeduplicator.filterNew(items, index,
+                    feed.subList(start, Math.min(start + PAGE_SIZE, feedSize)))) {
+                index.put(item.id, items.size());
+                items.add(item);
+            }
+        }
+        return items.size();
+    }
+
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.data;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Weighing a page of items for sorting, as done for every page loaded.
+ */
+@State(Scope.Benchmark)
+public class WeighingBenchmark {
+
+    @Param({ "12", "48", "480" })
+    public int size;
+
+    private List<BenchmarkItems.Item> items;
+    private List<PlaidItem> plaidItems;
+    private final BenchmarkItems.LikesWeigher relativeWeigher = new BenchmarkItems.LikesWeigher();
+    private final PlaidItemSorting.NaturalOrderWeigher naturalOrderWeigher =
+            new PlaidItemSorting.NaturalOrderWeigher();
+
+    @Setup
+    public void setUp() {
+        items = BenchmarkItems.items(size, 1L, 12, new Random(42));
+        plaidItems = new ArrayList<PlaidItem>(items);
+    }
+
+    @Benchmark
+    public float relativeCountWeigher() {
+        relativeWeigher.weigh(items);
+        return items.get(items.size() - 1).weight;
+    }
+
+    @Benchmark
+    public float naturalOrderWeigher() {
+        naturalOrderWeigher.weigh(plaidItems);
+        return plaidItems.get(plaidItems.size() - 1).weight;
+    }
+
+}
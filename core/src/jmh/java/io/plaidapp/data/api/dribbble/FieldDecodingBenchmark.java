@@ -0,0 +1,64 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.data.api.dribbble;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+
+/**
+ * Decoding scraped & API fields, compared against the regex / {@link SimpleDateFormat} approach
+ * the converter used previously.
+ */
+@State(Scope.Thread)
+public class FieldDecodingBenchmark {
+
+    private final String count = "1,234,567";
+    private final String date = "September 21, 2017";
+    private final String instant = "2017-09-21T13:45:07Z";
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("MMMM d, yyyy", Locale.US);
+
+    @Benchmark
+    public long parseCount() {
+        return ShotFieldDecoder.parseCount(count);
+    }
+
+    @Benchmark
+    public long parseCountWithRegex() {
+        return Long.parseLong(count.replaceAll(",", ""));
+    }
+
+    @Benchmark
+    public long parseDate() {
+        return ShotFieldDecoder.parseDate(date);
+    }
+
+    @Benchmark
+    public long parseDateWithSimpleDateFormat() throws ParseException {
+        return dateFormat.parse(date).getTime();
+    }
+
+    @Benchmark
+    public long parseIsoInstant() {
+        return ShotFieldDecoder.parseIsoInstant(instant);
+    }
+
+}
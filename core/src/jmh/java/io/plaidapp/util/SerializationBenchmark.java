@@ -0,0 +1,71 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import io.plaidapp.data.api.dribbble.ShotRecord;
+
+/**
+ * Round tripping shot records, as the feed cache & snapshot persist them.
+ */
+@State(Scope.Thread)
+public class SerializationBenchmark {
+
+    private static final int SHOTS = 36;
+
+    private final ShotRecord[] records = new ShotRecord[SHOTS];
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * 1024);
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < SHOTS; i++) {
+            records[i] = new ShotRecord(3400000L + i, "Weather mobile concept " + i,
+                    "<p>music mobile onboarding exploration</p>",
+                    "https://dribbble.com/shots/" + (3400000 + i), null,
+                    "https://cdn.dribbble.com/users/1/screenshots/" + i + ".png", null,
+                    400L, 300L, 12345L, 678L, 9L, 1505999107000L, false);
+        }
+    }
+
+    @Benchmark
+    public long shotRecords() throws IOException {
+        bytes.reset();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        for (ShotRecord record : records) {
+            record.write(out);
+        }
+        out.flush();
+        final DataInputStream in =
+                new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        long checksum = 0L;
+        for (int i = 0; i < records.length; i++) {
+            checksum += ShotRecord.read(in).id;
+        }
+        return checksum;
+    }
+
+}
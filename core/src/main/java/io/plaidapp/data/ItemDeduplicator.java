@@ -0,0 +1,69 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * De-dupes {@link PlaidItem}s, as the same item can be returned by multiple feeds.
+ */
+public class ItemDeduplicator {
+
+    private ItemDeduplicator() { }
+
+    /**
+     * @return those of {@code newItems} which are not already present in {@code existing}, in order
+     */
+    public static <T extends PlaidItem> List<T> filterNew(List<? extends PlaidItem> existing,
+                                                          List<T> newItems) {
+        final List<T> added = new ArrayList<>(newItems.size());
+        final int count = existing.size();
+        for (T newItem : newItems) {
+            boolean add = true;
+            for (int i = 0; i < count; i++) {
+                PlaidItem existingItem = existing.get(i);
+                if (existingItem.equals(newItem)) {
+                    add = false;
+                    break;
+                }
+            }
+            if (add) {
+                added.add(newItem);
+            }
+        }
+        return added;
+    }
+
+    /**
+     * As {@link #filterNew(List, List)} but finds existing items through an index of them, so costs
+     * O(newItems) rather than O(existing * newItems).
+     */
+    public static <T extends PlaidItem> List<T> filterNew(List<? extends PlaidItem> existing,
+                                                          ItemIndex existingIndex,
+                                                          List<T> newItems) {
+        final List<T> added = new ArrayList<>(newItems.size());
+        for (T newItem : newItems) {
+            final int position = existingIndex.indexOf(newItem.id);
+            if (position == ItemIndex.NO_POSITION || !existing.get(position).equals(newItem)) {
+                added.add(newItem);
+            }
+        }
+        return added;
+    }
+
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.data;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Maps the ids of a list of {@link PlaidItem}s to their positions, so that an item can be found
+ * without scanning the list. Maintained alongside the list: {@link #put(long, int)} as items are
+ * appended and {@link #rebuild(List)} after items are removed or moved.
+ * <p>
+ * An open addressing hash table of primitive ids & positions, so lookups neither box ids nor
+ * allocate entries.
+ */
+public class ItemIndex {
+
+    public static final int NO_POSITION = -1;
+
+    private static final int MIN_CAPACITY = 16;
+    // multiplier from Fibonacci hashing to spread sequential ids across the table
+    private static final long SPREAD = 0x9E3779B97F4A7C15L;
+
+    private long[] ids;
+    private int[] positions; // NO_POSITION marks an empty slot
+    private int size;
+
+    public ItemIndex() {
+        allocate(MIN_CAPACITY);
+    }
+
+    /**
+     * @return the position of the item with this id, or {@link #NO_POSITION}
+     */
+    public int indexOf(long id) {
+        final int mask = ids.length - 1;
+        for (int slot = slot(id, mask); ; slot = (slot + 1) & mask) {
+            final int position = positions[slot];
+            if (position == NO_POSITION || ids[slot] == id) return position;
+        }
+    }
+
+    public boolean contains(long id) {
+        return indexOf(id) != NO_POSITION;
+    }
+
+    /**
+     * Record the position of an item, replacing any position recorded for its id.
+     */
+    public void put(long id, int position) {
+        if (position < 0) throw new IllegalArgumentException("Invalid position " + position);
+        // keep the table at most half full so that probe sequences stay short
+        if ((size + 1) * 2 > ids.length) resize(ids.length * 2);
+        if (insert(id, position)) size++;
+    }
+
+    /**
+     * Re-index a list after items have been removed or moved.
+     */
+    public void rebuild(List<? extends PlaidItem> items) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < items.size() * 2) capacity *= 2;
+        if (capacity != ids.length) {
+            allocate(capacity);
+        } else {
+            clear();
+        }
+        for (int position = 0; position < items.size(); position++) {
+            if (insert(items.get(position).id, position)) size++;
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(positions, NO_POSITION);
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return whether the id was newly added
+     */
+    private boolean insert(long id, int position) {
+        final int mask = ids.length - 1;
+        int slot = slot(id, mask);
+        while (positions[slot] != NO_POSITION) {
+            if (ids[slot] == id) {
+                positions[slot] = position;
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        ids[slot] = id;
+        positions[slot] = position;
+        return true;
+    }
+
+    private void resize(int capacity) {
+        final long[] oldIds = ids;
+        final int[] oldPositions = positions;
+        final int oldSize = size;
+        allocate(capacity);
+        for (int i = 0; i < oldIds.length; i++) {
+            if (oldPositions[i] != NO_POSITION) insert(oldIds[i], oldPositions[i]);
+        }
+        size = oldSize;
+    }
+
+    private void allocate(int capacity) {
+        ids = new long[capacity];
+        positions = new int[capacity];
+        Arrays.fill(positions, NO_POSITION);
+        size = 0;
+    }
+
+    private static int slot(long id, int mask) {
+        final long hash = id * SPREAD;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+}
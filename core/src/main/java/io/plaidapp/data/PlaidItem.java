@@ -49,4 +49,9 @@ public abstract class PlaidItem {
     public boolean equals(Object o) {
         return (o.getClass() == getClass() && ((PlaidItem) o).id == id);
     }
+
+    @Override
+    public int hashCode() {
+        return (int) (id ^ (id >>> 32));
+    }
 }
@@ -42,6 +42,29 @@ public class PlaidItemSorting {
         void weigh(List<T> items);
     }
 
+    /**
+     *  Applies a weight to a group of {@link PlaidItem}s relative to the largest of some count
+     *  (e.g. likes) in the group; items with higher counts sort first within their page.
+     */
+    public static abstract class RelativeCountWeigher<T extends PlaidItem>
+            implements PlaidItemGroupWeigher<T> {
+
+        protected abstract long getCount(T item);
+
+        @Override
+        public void weigh(List<T> items) {
+            float maxCount = 0f;
+            for (int i = 0; i < items.size(); i++) {
+                maxCount = Math.max(maxCount, getCount(items.get(i)));
+            }
+            for (int i = 0; i < items.size(); i++) {
+                final T item = items.get(i);
+                float weight = 1f - ((float) getCount(item) / maxCount);
+                item.weight = item.page + weight;
+            }
+        }
+    }
+
     /**
      *  Applies a weight to a group of {@link PlaidItem}s according to their natural order.
      */
@@ -0,0 +1,225 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.data.api.dribbble;
+
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+/**
+ * Decodes the numeric & date fields of scraped shots directly from their text, without regexes,
+ * intermediate strings or shared formatters. The only state is the time zone dates are parsed in,
+ * so it is safe to use from several parsing threads at once.
+ */
+public final class ShotFieldDecoder {
+
+    /** Returned by {@link #parseDate(CharSequence)} when the text is not a valid date. */
+    public static final long INVALID_DATE = Long.MIN_VALUE;
+
+    private static final long MILLIS_PER_DAY = 24L * 60L * 60L * 1000L;
+    private static final String[] MONTHS = { "January", "February", "March", "April", "May",
+            "June", "July", "August", "September", "October", "November", "December" };
+
+    // TimeZone.getDefault() returns a copy so is read once, and again only when it changes
+    private static volatile TimeZone timeZone = TimeZone.getDefault();
+
+    private ShotFieldDecoder() { }
+
+    /**
+     * Parse dates in the current default time zone; call when it changes, e.g. on
+     * {@code ACTION_TIMEZONE_CHANGED}.
+     */
+    public static void onDefaultTimeZoneChanged() {
+        timeZone = TimeZone.getDefault();
+    }
+
+    /**
+     * Parse a non-negative count which may contain grouping commas, e.g. {@code 1,234}.
+     *
+     * @throws NumberFormatException if the text contains anything other than digits & commas
+     */
+    public static long parseCount(CharSequence text) {
+        final int end = trimEnd(text);
+        int i = trimStart(text, end);
+        if (i == end) throw new NumberFormatException("Empty count");
+        long value = 0L;
+        for (; i < end; i++) {
+            final char c = text.charAt(i);
+            if (c == ',') continue;
+            if (c < '0' || c > '9') throw new NumberFormatException("Invalid count: " + text);
+            final int digit = c - '0';
+            if (value > (Long.MAX_VALUE - digit) / 10L) {
+                throw new NumberFormatException("Count overflow: " + text);
+            }
+            value = value * 10L + digit;
+        }
+        return value;
+    }
+
+    /**
+     * Parse a date in the form {@code MMMM d, yyyy} e.g. {@code March 7, 2017}, as midnight in the
+     * default time zone (as dates are displayed, and were previously parsed, in the device's time
+     * zone, which may change whilst the app runs; see {@link #onDefaultTimeZoneChanged()}).
+     *
+     * @return the date in milliseconds since the epoch or {@link #INVALID_DATE}
+     */
+    public static long parseDate(CharSequence text) {
+        final int end = trimEnd(text);
+        int i = trimStart(text, end);
+
+        final int monthStart = i;
+        while (i < end && text.charAt(i) != ' ') i++;
+        final int month = parseMonth(text, monthStart, i);
+        if (month < 0) return INVALID_DATE;
+
+        while (i < end && text.charAt(i) == ' ') i++;
+        int day = 0;
+        int digits = 0;
+        for (char c; i < end && (c = text.charAt(i)) >= '0' && c <= '9'; i++, digits++) {
+            day = day * 10 + (c - '0');
+        }
+        if (digits == 0 || digits > 2 || day < 1 || day > 31) return INVALID_DATE;
+
+        if (i < end && text.charAt(i) == ',') i++;
+        while (i < end && text.charAt(i) == ' ') i++;
+        int year = 0;
+        digits = 0;
+        for (char c; i < end && (c = text.charAt(i)) >= '0' && c <= '9'; i++, digits++) {
+            year = year * 10 + (c - '0');
+        }
+        if (digits != 4 || i != end) return INVALID_DATE;
+
+        final TimeZone timeZone = ShotFieldDecoder.timeZone;
+        final long utcMidnight = daysSinceEpoch(year, month + 1, day) * MILLIS_PER_DAY;
+        final int offset = timeZone.getOffset(utcMidnight - timeZone.getRawOffset());
+        final long localMidnight = utcMidnight - offset;
+        if (timeZone.getOffset(localMidnight) == offset) return localMidnight;
+        // the offset changes around midnight, e.g. clocks skip from 00:00 to 01:00 so that
+        // midnight doesn't exist; resolve it as a calendar would
+        final Calendar calendar = new GregorianCalendar(timeZone);
+        calendar.clear();
+        calendar.set(year, month, day);
+        return calendar.getTimeInMillis();
+    }
+
+    /**
+     * Parse a timestamp in the form {@code yyyy-MM-dd'T'HH:mm:ss} followed by {@code Z} (UTC, as
+     * used by the API) or an offset from UTC, {@code ±HH:mm} or {@code ±HHmm}.
+     *
+     * @return the time in milliseconds since the epoch or {@link #INVALID_DATE}
+     */
+    public static long parseIsoInstant(CharSequence text) {
+        final int length = text.length();
+        if (length < 20 || text.charAt(4) != '-' || text.charAt(7) != '-'
+                || text.charAt(10) != 'T' || text.charAt(13) != ':' || text.charAt(16) != ':') {
+            return INVALID_DATE;
+        }
+        final int year = digits(text, 0, 4);
+        final int month = digits(text, 5, 2);
+        final int day = digits(text, 8, 2);
+        final int hour = digits(text, 11, 2);
+        final int minute = digits(text, 14, 2);
+        final int second = digits(text, 17, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31 || hour < 0 || hour > 23
+                || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return INVALID_DATE;
+        }
+        final long offsetMillis = parseOffset(text, 19, length);
+        if (offsetMillis == INVALID_DATE) return INVALID_DATE;
+        return daysSinceEpoch(year, month, day) * MILLIS_PER_DAY
+                + ((hour * 60L + minute) * 60L + second) * 1000L - offsetMillis;
+    }
+
+    /**
+     * @return the offset from UTC in text[start, end), either {@code Z}, {@code ±HH:mm} or
+     * {@code ±HHmm}, in milliseconds; or {@link #INVALID_DATE}
+     */
+    private static long parseOffset(CharSequence text, int start, int end) {
+        final char sign = text.charAt(start);
+        if (sign == 'Z') return end == start + 1 ? 0L : INVALID_DATE;
+        if (sign != '+' && sign != '-') return INVALID_DATE;
+        final int minutesStart;
+        if (end == start + 6 && text.charAt(start + 3) == ':') {
+            minutesStart = start + 4;
+        } else if (end == start + 5) {
+            minutesStart = start + 3;
+        } else {
+            return INVALID_DATE;
+        }
+        final int hours = digits(text, start + 1, 2);
+        final int minutes = digits(text, minutesStart, 2);
+        if (hours < 0 || hours > 18 || minutes < 0 || minutes > 59) return INVALID_DATE;
+        final long offset = (hours * 60L + minutes) * 60L * 1000L;
+        return sign == '+' ? offset : -offset;
+    }
+
+    /**
+     * @return the value of the {@code count} decimal digits at {@code start}, or -1
+     */
+    private static int digits(CharSequence text, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            final char c = text.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * @return the zero based month named by text[start, end) or -1
+     */
+    private static int parseMonth(CharSequence text, int start, int end) {
+        final int length = end - start;
+        for (int month = 0; month < MONTHS.length; month++) {
+            final String name = MONTHS[month];
+            if (name.length() != length) continue;
+            int i = 0;
+            while (i < length && Character.toLowerCase(text.charAt(start + i))
+                    == Character.toLowerCase(name.charAt(i))) {
+                i++;
+            }
+            if (i == length) return month;
+        }
+        return -1;
+    }
+
+    /**
+     * Days from 1970-01-01 to the given (proleptic Gregorian) date.
+     */
+    private static long daysSinceEpoch(int year, int month, int day) {
+        final int y = month <= 2 ? year - 1 : year;
+        final int era = (y >= 0 ? y : y - 399) / 400;
+        final int yearOfEra = y - era * 400;
+        final int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        final int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097L + dayOfEra - 719468L;
+    }
+
+    private static int trimStart(CharSequence text, int end) {
+        int i = 0;
+        while (i < end && Character.isWhitespace(text.charAt(i))) i++;
+        return i;
+    }
+
+    private static int trimEnd(CharSequence text) {
+        int end = text.length();
+        while (end > 0 && Character.isWhitespace(text.charAt(end - 1))) end--;
+        return end;
+    }
+
+}
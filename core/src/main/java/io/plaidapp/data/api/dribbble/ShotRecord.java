@@ -0,0 +1,101 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.data.api.dribbble;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import static io.plaidapp.util.StreamUtils.readString;
+import static io.plaidapp.util.StreamUtils.writeString;
+
+/**
+ * The fields of a shot which are populated when loading feeds, as persisted to disk by the feed
+ * cache & snapshot. This is the single definition of the record layout; both stores convert shots
+ * to & from records, so that they (and benchmarks of them) can't drift apart.
+ */
+public final class ShotRecord {
+
+    public final long id;
+    public final String title;
+    public final String description;
+    public final String htmlUrl;
+    public final String hidpiImage;
+    public final String normalImage;
+    public final String teaserImage;
+    public final long width;
+    public final long height;
+    public final long viewsCount;
+    public final long likesCount;
+    public final long commentsCount;
+    public final long createdAt;
+    public final boolean animated;
+
+    public ShotRecord(long id,
+                      String title,
+                      String description,
+                      String htmlUrl,
+                      String hidpiImage,
+                      String normalImage,
+                      String teaserImage,
+                      long width,
+                      long height,
+                      long viewsCount,
+                      long likesCount,
+                      long commentsCount,
+                      long createdAt,
+                      boolean animated) {
+        this.id = id;
+        this.title = title;
+        this.description = description;
+        this.htmlUrl = htmlUrl;
+        this.hidpiImage = hidpiImage;
+        this.normalImage = normalImage;
+        this.teaserImage = teaserImage;
+        this.width = width;
+        this.height = height;
+        this.viewsCount = viewsCount;
+        this.likesCount = likesCount;
+        this.commentsCount = commentsCount;
+        this.createdAt = createdAt;
+        this.animated = animated;
+    }
+
+    public void write(DataOutput out) throws IOException {
+        out.writeLong(id);
+        writeString(title, out);
+        writeString(description, out);
+        writeString(htmlUrl, out);
+        writeString(hidpiImage, out);
+        writeString(normalImage, out);
+        writeString(teaserImage, out);
+        out.writeLong(width);
+        out.writeLong(height);
+        out.writeLong(viewsCount);
+        out.writeLong(likesCount);
+        out.writeLong(commentsCount);
+        out.writeLong(createdAt);
+        out.writeBoolean(animated);
+    }
+
+    public static ShotRecord read(DataInput in) throws IOException {
+        return new ShotRecord(in.readLong(), readString(in), readString(in), readString(in),
+                readString(in), readString(in), readString(in), in.readLong(), in.readLong(),
+                in.readLong(), in.readLong(), in.readLong(), in.readLong(), in.readBoolean());
+    }
+
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.data;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ItemIndexTest {
+
+    private final ItemIndex index = new ItemIndex();
+
+    @Test
+    public void emptyIndexFindsNothing() {
+        assertEquals(ItemIndex.NO_POSITION, index.indexOf(0L));
+        assertEquals(ItemIndex.NO_POSITION, index.indexOf(3400050L));
+        assertFalse(index.contains(3400050L));
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void findsPositionsOfAppendedItems() {
+        index.put(3400050L, 0);
+        index.put(3400175L, 1);
+        index.put(-1L, 2);
+
+        assertEquals(0, index.indexOf(3400050L));
+        assertEquals(1, index.indexOf(3400175L));
+        assertEquals(2, index.indexOf(-1L));
+        assertFalse(index.contains(3400300L));
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    public void putReplacesThePositionOfAnId() {
+        index.put(3400050L, 0);
+        index.put(3400050L, 5);
+
+        assertEquals(5, index.indexOf(3400050L));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    public void growsToHoldManyIds() {
+        final long[] ids = ids(10_000);
+        for (int i = 0; i < ids.length; i++) {
+            index.put(ids[i], i);
+        }
+
+        assertEquals(ids.length, index.size());
+        for (int i = 0; i < ids.length; i++) {
+            assertEquals(i, index.indexOf(ids[i]));
+        }
+        assertFalse(index.contains(42L));
+    }
+
+    @Test
+    public void rebuildReindexesAListAfterRemovals() {
+        final List<PlaidItem> items = items(ids(1000));
+        for (int i = 0; i < items.size(); i++) {
+            index.put(items.get(i).id, i);
+        }
+        final List<PlaidItem> kept = new ArrayList<>();
+        final List<PlaidItem> removed = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            (i % 3 == 0 ? kept : removed).add(items.get(i));
+        }
+
+        index.rebuild(kept);
+
+        assertEquals(kept.size(), index.size());
+        for (int i = 0; i < kept.size(); i++) {
+            assertEquals(i, index.indexOf(kept.get(i).id));
+        }
+        for (PlaidItem item : removed) {
+            assertFalse(index.contains(item.id));
+        }
+    }
+
+    @Test
+    public void rebuildKeepsTheLastPositionOfDuplicateIds() {
+        index.rebuild(items(new long[] { 1L, 2L, 1L }));
+
+        assertEquals(2, index.indexOf(1L));
+        assertEquals(1, index.indexOf(2L));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    public void clearForgetsEveryId() {
+        index.put(3400050L, 0);
+        index.put(3400175L, 1);
+        index.clear();
+
+        assertFalse(index.contains(3400050L));
+        assertEquals(0, index.size());
+        index.put(3400175L, 0);
+        assertEquals(0, index.indexOf(3400175L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNegativePositions() {
+        index.put(3400050L, ItemIndex.NO_POSITION);
+    }
+
+    /**
+     * Sequential ids (as Dribbble's are) mixed with ids which are likely to collide.
+     */
+    private static long[] ids(int count) {
+        final long[] ids = new long[count];
+        for (int i = 0; i < count; i++) {
+            switch (i % 4) {
+                case 0:
+                    ids[i] = 3400000L + i;
+                    break;
+                case 1:
+                    ids[i] = (long) i << 32;
+                    break;
+                case 2:
+                    ids[i] = Long.MIN_VALUE + i;
+                    break;
+                default:
+                    ids[i] = -i;
+            }
+        }
+        return ids;
+    }
+
+    private static List<PlaidItem> items(long[] ids) {
+        final List<PlaidItem> items = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            items.add(new PlaidItem(id, "Item " + id, null) { });
+        }
+        return items;
+    }
+
+}
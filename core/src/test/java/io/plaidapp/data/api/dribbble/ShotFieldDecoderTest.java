@@ -0,0 +1,207 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.data.api.dribbble;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class ShotFieldDecoderTest {
+
+    private static final String[] MONTHS = { "January", "February", "March", "April", "May",
+            "June", "July", "August", "September", "October", "November", "December" };
+    // zones whose clocks change at midnight (or skip whole days) along with some which don't
+    private static final String[] TIME_ZONES = { "America/Sao_Paulo", "Asia/Tehran",
+            "America/Havana", "Pacific/Apia", "Australia/Lord_Howe", "Europe/London",
+            "America/Los_Angeles", "Asia/Kolkata", "UTC" };
+
+    private final TimeZone defaultTimeZone = TimeZone.getDefault();
+
+    @After
+    public void tearDown() {
+        TimeZone.setDefault(defaultTimeZone);
+        ShotFieldDecoder.onDefaultTimeZoneChanged();
+    }
+
+    @Test
+    public void parsesCounts() {
+        assertEquals(0L, ShotFieldDecoder.parseCount("0"));
+        assertEquals(151L, ShotFieldDecoder.parseCount("151"));
+        assertEquals(28477L, ShotFieldDecoder.parseCount(" 28,477\n"));
+        assertEquals(Long.MAX_VALUE, ShotFieldDecoder.parseCount("9,223,372,036,854,775,807"));
+    }
+
+    @Test
+    public void rejectsCountsWhichOverflow() {
+        assertInvalidCount("9223372036854775808");
+        // wraps past 2^64 back to a small positive number
+        assertInvalidCount("18446744073709551617");
+        assertInvalidCount("99,999,999,999,999,999,999");
+    }
+
+    @Test
+    public void rejectsMalformedCounts() {
+        assertInvalidCount("");
+        assertInvalidCount("  ");
+        assertInvalidCount("-1");
+        assertInvalidCount("1.5");
+        assertInvalidCount("12k");
+        assertInvalidCount("1 234");
+    }
+
+    @Test
+    public void parsesDatesAsLocalMidnight() {
+        setDefaultTimeZone("America/Los_Angeles");
+        assertEquals(expectedDate(2017, Calendar.MARCH, 7),
+                ShotFieldDecoder.parseDate("March 7, 2017"));
+        assertEquals(expectedDate(2016, Calendar.AUGUST, 24),
+                ShotFieldDecoder.parseDate(" august 24, 2016 "));
+        assertEquals(expectedDate(2017, Calendar.DECEMBER, 31),
+                ShotFieldDecoder.parseDate("December 31 2017"));
+    }
+
+    @Test
+    public void followsChangesToTheDefaultTimeZoneWhenTold() {
+        setDefaultTimeZone("UTC");
+        final long utc = ShotFieldDecoder.parseDate("March 7, 2017");
+        // the time zone is cached...
+        TimeZone.setDefault(TimeZone.getTimeZone("Asia/Kolkata"));
+        assertEquals(utc, ShotFieldDecoder.parseDate("March 7, 2017"));
+        // ...until it is reported to have changed
+        ShotFieldDecoder.onDefaultTimeZoneChanged();
+        final long kolkata = ShotFieldDecoder.parseDate("March 7, 2017");
+
+        assertEquals(5L * 60L * 60L * 1000L + 30L * 60L * 1000L, utc - kolkata);
+    }
+
+    @Test
+    public void parsesDatesWhenClocksChangeAtMidnight() {
+        // clocks went forward from 00:00 to 01:00, so midnight didn't exist
+        setDefaultTimeZone("America/Sao_Paulo");
+        assertEquals(expectedDate(2017, Calendar.OCTOBER, 15),
+                ShotFieldDecoder.parseDate("October 15, 2017"));
+        setDefaultTimeZone("Asia/Tehran");
+        assertEquals(expectedDate(2017, Calendar.MARCH, 22),
+                ShotFieldDecoder.parseDate("March 22, 2017"));
+    }
+
+    @Test
+    public void parsesEveryDateAsACalendarWould() {
+        for (String id : TIME_ZONES) {
+            setDefaultTimeZone(id);
+            final Calendar day = new GregorianCalendar(TimeZone.getTimeZone("UTC"), Locale.US);
+            day.clear();
+            day.set(2010, Calendar.JANUARY, 1);
+            while (day.get(Calendar.YEAR) < 2019) {
+                final int year = day.get(Calendar.YEAR);
+                final int month = day.get(Calendar.MONTH);
+                final int dayOfMonth = day.get(Calendar.DAY_OF_MONTH);
+                final String text = MONTHS[month] + " " + dayOfMonth + ", " + year;
+                assertEquals(id + " " + text, expectedDate(year, month, dayOfMonth),
+                        ShotFieldDecoder.parseDate(text));
+                day.add(Calendar.DAY_OF_MONTH, 1);
+            }
+        }
+    }
+
+    @Test
+    public void rejectsMalformedDates() {
+        assertInvalidDate("");
+        assertInvalidDate("Smarch 7, 2017");
+        assertInvalidDate("March, 2017");
+        assertInvalidDate("March 0, 2017");
+        assertInvalidDate("March 32, 2017");
+        assertInvalidDate("March 123, 2017");
+        assertInvalidDate("March 7, 17");
+        assertInvalidDate("March 7, 20170");
+        assertInvalidDate("March 7, 2017 at noon");
+        assertInvalidDate("7 March 2017");
+    }
+
+    @Test
+    public void parsesIsoInstants() {
+        final Calendar expected = new GregorianCalendar(TimeZone.getTimeZone("UTC"), Locale.US);
+        expected.clear();
+        expected.set(2017, Calendar.MARCH, 7, 10, 15, 30);
+        assertEquals(expected.getTimeInMillis(),
+                ShotFieldDecoder.parseIsoInstant("2017-03-07T10:15:30Z"));
+    }
+
+    @Test
+    public void parsesIsoInstantsWithOffsets() {
+        final long utc = ShotFieldDecoder.parseIsoInstant("2017-03-07T10:15:30Z");
+        assertEquals(utc, ShotFieldDecoder.parseIsoInstant("2017-03-07T11:15:30+01:00"));
+        assertEquals(utc, ShotFieldDecoder.parseIsoInstant("2017-03-07T15:45:30+0530"));
+        // the day before, locally
+        assertEquals(utc, ShotFieldDecoder.parseIsoInstant("2017-03-06T23:15:30-11:00"));
+        assertEquals(utc, ShotFieldDecoder.parseIsoInstant("2017-03-07T10:15:30+00:00"));
+    }
+
+    @Test
+    public void rejectsMalformedIsoInstants() {
+        assertEquals(ShotFieldDecoder.INVALID_DATE,
+                ShotFieldDecoder.parseIsoInstant("2017-03-07 10:15:30Z"));
+        assertEquals(ShotFieldDecoder.INVALID_DATE,
+                ShotFieldDecoder.parseIsoInstant("2017-13-07T10:15:30Z"));
+        assertEquals(ShotFieldDecoder.INVALID_DATE,
+                ShotFieldDecoder.parseIsoInstant("2017-03-07T24:15:30Z"));
+        assertEquals(ShotFieldDecoder.INVALID_DATE,
+                ShotFieldDecoder.parseIsoInstant("2017-03-07T10:15:30"));
+        assertEquals(ShotFieldDecoder.INVALID_DATE,
+                ShotFieldDecoder.parseIsoInstant("2017-03-07T10:15:30Zulu"));
+        assertEquals(ShotFieldDecoder.INVALID_DATE,
+                ShotFieldDecoder.parseIsoInstant("2017-03-07T10:15:30+1:00"));
+        assertEquals(ShotFieldDecoder.INVALID_DATE,
+                ShotFieldDecoder.parseIsoInstant("2017-03-07T10:15:30+01:60"));
+    }
+
+    private static void setDefaultTimeZone(String id) {
+        TimeZone.setDefault(TimeZone.getTimeZone(id));
+        ShotFieldDecoder.onDefaultTimeZoneChanged();
+    }
+
+    /**
+     * Midnight of the date in the default time zone, as the formatter used before resolved it.
+     */
+    private static long expectedDate(int year, int month, int day) {
+        final Calendar calendar = new GregorianCalendar(TimeZone.getDefault(), Locale.US);
+        calendar.clear();
+        calendar.set(year, month, day);
+        return calendar.getTimeInMillis();
+    }
+
+    private static void assertInvalidCount(String text) {
+        try {
+            ShotFieldDecoder.parseCount(text);
+            fail("Expected \"" + text + "\" to be rejected");
+        } catch (NumberFormatException expected) {
+            // expected
+        }
+    }
+
+    private static void assertInvalidDate(String text) {
+        assertEquals(text, ShotFieldDecoder.INVALID_DATE, ShotFieldDecoder.parseDate(text));
+    }
+
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.plaidapp.data.api.dribbble;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ShotRecordTest {
+
+    @Test
+    public void roundTripsEveryField() throws IOException {
+        final ShotRecord record = read(write(new ShotRecord(3400050L, "Minimal concept",
+                "<p>exploration</p>", "https://dribbble.com/shots/3400050", "hidpi.png",
+                "normal.png", "teaser.png", 800L, 600L, 28477L, 4512L, 151L, 1492905600000L,
+                true)))[0];
+
+        assertEquals(3400050L, record.id);
+        assertEquals("Minimal concept", record.title);
+        assertEquals("<p>exploration</p>", record.description);
+        assertEquals("https://dribbble.com/shots/3400050", record.htmlUrl);
+        assertEquals("hidpi.png", record.hidpiImage);
+        assertEquals("normal.png", record.normalImage);
+        assertEquals("teaser.png", record.teaserImage);
+        assertEquals(800L, record.width);
+        assertEquals(600L, record.height);
+        assertEquals(28477L, record.viewsCount);
+        assertEquals(4512L, record.likesCount);
+        assertEquals(151L, record.commentsCount);
+        assertEquals(1492905600000L, record.createdAt);
+        assertTrue(record.animated);
+    }
+
+    @Test
+    public void roundTripsMissingStrings() throws IOException {
+        final ShotRecord record = read(write(new ShotRecord(1L, null, "", null, null,
+                "normal.png", null, 0L, 0L, 0L, 0L, 0L, -1L, false)))[0];
+
+        assertNull(record.title);
+        assertEquals("", record.description);
+        assertNull(record.htmlUrl);
+        assertNull(record.hidpiImage);
+        assertNull(record.teaserImage);
+        assertEquals(-1L, record.createdAt);
+        assertFalse(record.animated);
+    }
+
+    @Test
+    public void recordsFollowOneAnother() throws IOException {
+        final ShotRecord[] records = read(write(
+                new ShotRecord(1L, "One", null, null, null, null, null, 1L, 1L, 1L, 1L, 1L, 1L,
+                        false),
+                new ShotRecord(2L, "Two", null, null, null, null, null, 2L, 2L, 2L, 2L, 2L, 2L,
+                        true)), 2);
+
+        assertEquals(1L, records[0].id);
+        assertEquals(2L, records[1].id);
+        assertEquals("Two", records[1].title);
+        assertTrue(records[1].animated);
+    }
+
+    @Test(expected = EOFException.class)
+    public void truncatedRecordFailsToRead() throws IOException {
+        final byte[] bytes = write(new ShotRecord(1L, "One", null, null, null, null, null, 1L,
+                1L, 1L, 1L, 1L, 1L, false));
+        final byte[] truncated = new byte[bytes.length - 1];
+        System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+        read(truncated);
+    }
+
+    private static byte[] write(ShotRecord... records) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        for (ShotRecord record : records) {
+            record.write(out);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static ShotRecord[] read(byte[] bytes) throws IOException {
+        return read(bytes, 1);
+    }
+
+    private static ShotRecord[] read(byte[] bytes, int count) throws IOException {
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        final ShotRecord[] records = new ShotRecord[count];
+        for (int i = 0; i < count; i++) {
+            records[i] = ShotRecord.read(in);
+        }
+        return records;
+    }
+
+}